@@ -0,0 +1,74 @@
+package fraud;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic transactions, decisions and alerts for the benchmarks.
+ */
+final class BenchmarkData {
+    private static final String[][] CITIES = {
+            { "New York", "US" }, { "London", "GB" }, { "Paris", "FR" }, { "Berlin", "DE" },
+            { "Tokyo", "JP" }, { "Sydney", "AU" }, { "Mumbai", "IN" }, { "Sao Paulo", "BR" }
+    };
+    private static final String[] CURRENCIES = { "USD", "EUR", "GBP", "JPY" };
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Users for a store of the given size, about ten transactions each
+     */
+    static int users(int storeSize) {
+        return Math.max(1, storeSize / 10);
+    }
+
+    static Transaction transaction(Random random, String transactionId, int users, Instant timestamp) {
+        String[] city = CITIES[random.nextInt(CITIES.length)];
+        Transaction txn = new Transaction();
+        txn.setTransactionId(transactionId);
+        txn.setUserId("user-" + random.nextInt(users));
+        txn.setAmount(Math.round(random.nextDouble() * 500_000) / 100.0);
+        txn.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+        txn.setMerchantId("merchant-" + random.nextInt(1000));
+        txn.setTimestamp(timestamp);
+        txn.setLocation(new Location(city[0], city[1]));
+        return txn;
+    }
+
+    /**
+     * Transactions spread a minute apart from 2024-01-01
+     */
+    static List<Transaction> transactions(long seed, int count) {
+        return transactions(seed, count, users(count));
+    }
+
+    static List<Transaction> transactions(long seed, int count, int users) {
+        Random random = new Random(seed);
+        List<Transaction> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(transaction(random, "txn-" + seed + "-" + i, users, START.plus(Duration.ofMinutes(i))));
+        }
+        return result;
+    }
+
+    static List<FraudDecision> decisions(RuleEngine engine, List<Transaction> transactions) {
+        List<FraudDecision> result = new ArrayList<>(transactions.size());
+        for (Transaction txn : transactions) {
+            result.add(engine.analyze(txn));
+        }
+        return result;
+    }
+
+    static List<FraudAlert> alerts(List<Transaction> transactions, List<FraudDecision> decisions) {
+        List<FraudAlert> result = new ArrayList<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            result.add(FraudAlert.forDecision(transactions.get(i), decisions.get(i)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,27 @@
+package fraud;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count in bench.threads (default
+ * "1,4") with the GC profiler, which reports allocation per operation and
+ * GC counts next to each score. Other arguments are passed to JMH, e.g. a
+ * benchmark regex or -p storeSize=10000.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        for (String threads : System.getProperty("bench.threads", "1,4").split(",")) {
+            System.out.println("Running benchmarks with " + threads.trim() + " thread(s)");
+            new Runner(new OptionsBuilder()
+                    .parent(cli)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .build()).run();
+        }
+    }
+}
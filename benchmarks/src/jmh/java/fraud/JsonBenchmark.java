@@ -0,0 +1,64 @@
+package fraud;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON round trips of storeSize-long lists through {@link JsonHelper}, the
+ * way the API writes responses and reads batches back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({ "10", "1000" })
+    public int storeSize;
+
+    private List<Transaction> transactions;
+    private List<FraudDecision> decisions;
+    private List<FraudAlert> alerts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactions = BenchmarkData.transactions(1, storeSize);
+        decisions = BenchmarkData.decisions(new RuleEngine(), transactions);
+        alerts = BenchmarkData.alerts(transactions, decisions);
+    }
+
+    @Benchmark
+    public List<Transaction> transactionRoundTrip() {
+        return readList(JsonHelper.toJson(transactions), Transaction.class);
+    }
+
+    /**
+     * Decisions have no default constructor, so clients read them back as
+     * plain maps
+     */
+    @Benchmark
+    public List<?> decisionRoundTrip() {
+        return JsonHelper.fromJson(JsonHelper.toJson(decisions), List.class);
+    }
+
+    @Benchmark
+    public List<FraudAlert> alertRoundTrip() {
+        return readList(JsonHelper.toJson(alerts), FraudAlert.class);
+    }
+
+    private static <T> List<T> readList(String json, Class<T> type) {
+        JsonParser parser = new JsonParser(json);
+        List<T> result = new ArrayList<>();
+        parser.beginArray();
+        while (parser.hasNext()) {
+            result.add(parser.read(type));
+        }
+        parser.endArray();
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package fraud;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-transaction scoring against an engine whose per-user velocity and
+ * location state was restored from storeSize earlier transactions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleEngineBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int storeSize;
+
+    private final AtomicLong seeds = new AtomicLong();
+    private RuleEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new RuleEngine();
+        engine.restoreUserState(BenchmarkData.transactions(1, storeSize));
+    }
+
+    /**
+     * Each thread scores its own transactions for the same users, stamped
+     * as if they arrived now
+     */
+    @State(Scope.Thread)
+    public static class Stream {
+        Transaction[] transactions;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(RuleEngineBenchmark benchmark) {
+            transactions = BenchmarkData.transactions(benchmark.seeds.incrementAndGet() + 1, 4096,
+                    BenchmarkData.users(benchmark.storeSize)).toArray(new Transaction[0]);
+        }
+    }
+
+    @Benchmark
+    public FraudDecision analyze(Stream stream) {
+        Transaction txn = stream.transactions[stream.next++ & (stream.transactions.length - 1)];
+        txn.setTimestamp(Instant.now());
+        return engine.analyze(txn);
+    }
+}
@@ -0,0 +1,58 @@
+package fraud;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stats aggregation: counting a transaction in and out, as every insert and
+ * eviction does, and reading the distributions the dashboard polls, over
+ * stats already holding storeSize transactions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsBenchmark {
+
+    @Param({ "10000", "1000000" })
+    public int storeSize;
+
+    private TransactionStats stats;
+    private Transaction[] samples;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stats = new TransactionStats();
+        for (Transaction txn : BenchmarkData.transactions(1, storeSize)) {
+            stats.add(txn);
+        }
+        List<Transaction> sampled = BenchmarkData.transactions(2, 4096, BenchmarkData.users(storeSize));
+        samples = sampled.toArray(new Transaction[0]);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public void record(Cursor cursor) {
+        Transaction txn = samples[cursor.next++ & (samples.length - 1)];
+        stats.add(txn);
+        stats.remove(txn);
+    }
+
+    @Benchmark
+    public void readDistributions(Blackhole bh) {
+        bh.consume(stats.getHourlyDistribution());
+        bh.consume(stats.getDailyDistribution());
+        bh.consume(stats.getDetailedAmountRanges());
+        bh.consume(stats.getCountryDistribution());
+        bh.consume(stats.getCityDistribution());
+    }
+}
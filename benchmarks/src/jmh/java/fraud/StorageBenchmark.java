@@ -0,0 +1,78 @@
+package fraud;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Inserts into a store that is already full, so every insert also evicts
+ * the oldest transaction and uncounts it from the stats. The heap backend
+ * always holds its last 10000, so only the off-heap store takes storeSize.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StorageBenchmark {
+    private static final int HEAP_CAPACITY = 10_000;
+    private static final int FILL_CHUNK = 10_000;
+    private static final AtomicInteger WRITERS = new AtomicInteger();
+
+    public abstract static class Store {
+        TransactionStorage storage;
+        int users;
+
+        void fill(String backend, int size) {
+            storage = new TransactionStorage(backend);
+            users = BenchmarkData.users(size);
+            for (int i = 0; i < size; i += FILL_CHUNK) {
+                storage.addTransactions(BenchmarkData.transactions(i, Math.min(FILL_CHUNK, size - i), users));
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class HeapStore extends Store {
+        @Setup(Level.Trial)
+        public void setUp() {
+            fill("heap", HEAP_CAPACITY);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class OffHeapStore extends Store {
+        @Param({ "10000", "1000000" })
+        public int storeSize;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            System.setProperty("fraud.storage.capacity", Integer.toString(storeSize));
+            fill("offheap", storeSize);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        final Random random = new Random();
+        final String prefix = "bench-" + WRITERS.incrementAndGet() + "-";
+        long next;
+
+        Transaction next(Store store) {
+            return BenchmarkData.transaction(random, prefix + next++, store.users, Instant.now());
+        }
+    }
+
+    @Benchmark
+    public Transaction heapInsertAtCapacity(HeapStore store, Writer writer) {
+        return store.storage.addTransaction(writer.next(store));
+    }
+
+    @Benchmark
+    public Transaction offHeapInsertAtCapacity(OffHeapStore store, Writer writer) {
+        return store.storage.addTransaction(writer.next(store));
+    }
+}
@@ -0,0 +1,131 @@
+package fraud;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of requests being handled at once.
+ * <p>
+ * A request that cannot get a permit within the admission timeout is
+ * answered straight away with 503 and a Retry-After header, so overload
+ * turns into fast backpressure for the client instead of an ever-growing
+ * backlog of waiting requests. Requests a saturated request pool cannot
+ * queue are shed through the same response, see {@link #overflowHandler()}.
+ */
+public class AdmissionFilter extends Filter {
+    private static final byte[] REJECTED = "{\"error\":\"Server busy, retry later\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final ThreadLocal<Boolean> SHEDDING = new ThreadLocal<>();
+
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final long timeoutMillis;
+    private final AtomicLong rejected = new AtomicLong();
+    private final ThreadPoolExecutor shedder;
+
+    public AdmissionFilter(int maxInFlight, long timeoutMillis) {
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.timeoutMillis = timeoutMillis;
+        // Shedding only reads the request and writes a short reply, so a
+        // couple of threads keep up with a full request pool
+        this.shedder = new ThreadPoolExecutor(2, 2, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Integer.getInteger("fraud.http.shedQueueSize", 1000)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "admission-shedder");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.shedder.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get a handler for a saturated request pool. The rejected request still
+     * runs, but on a shedding thread where this filter answers it with 503
+     * and Retry-After instead of letting the server drop the connection.
+     * If the shedding queue is full as well the request is rejected as before.
+     */
+    public RejectedExecutionHandler overflowHandler() {
+        return (task, pool) -> shedder.execute(() -> {
+            SHEDDING.set(Boolean.TRUE);
+            try {
+                task.run();
+            } finally {
+                SHEDDING.remove();
+            }
+        });
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (SHEDDING.get() != null || !acquire()) {
+            rejected.incrementAndGet();
+            reject(exchange);
+            return;
+        }
+        try {
+            chain.doFilter(exchange);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean acquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (timeoutMillis <= 0) {
+            return false;
+        }
+        try {
+            return permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getRequestBody().close();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            exchange.sendResponseHeaders(503, REJECTED.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(REJECTED);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Get the number of requests currently being handled
+     */
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * Get the number of requests rejected so far
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public String description() {
+        return "Limits concurrent requests to " + maxInFlight;
+    }
+}
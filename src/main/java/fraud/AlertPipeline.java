@@ -0,0 +1,239 @@
+package fraud;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Raises alerts off the scoring path.
+ * <p>
+ * Request threads hand a flagged transaction and its decision to a bounded
+ * ring and return. A single worker drains the ring in batches, builds the
+ * alerts, classifies, coalesces and stores them with one log sync per
+ * batch, and publishes them as events.
+ * <p>
+ * The ring is multi-producer, single-consumer. Producers claim a slot with
+ * a CAS on the tail, write it, and wake the worker only if it is parked. The
+ * worker clears each slot before moving the head past it, so a slot is
+ * never reused while still occupied. When the ring is full a producer waits
+ * up to the offer timeout for space (backpressure) and then drops the alert.
+ * Both are counted.
+ * <p>
+ * Alerts are stored asynchronously, so they can trail the response, and
+ * alerts still queued are lost if the process dies. {@link #close()} drains
+ * the ring.
+ */
+public class AlertPipeline implements Closeable {
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AlertStorage alertStorage;
+    private final EventBroadcaster events;
+    private final AtomicReferenceArray<Pending> ring;
+    private final int mask;
+    private final long offerTimeoutNanos;
+    private final AtomicLong tail = new AtomicLong(); // next slot to claim
+    private volatile long head; // next slot to drain, written by the worker
+    private volatile long processed; // slots fully handled, written by the worker
+    private volatile boolean parked;
+    private volatile boolean running = true;
+    private final Thread worker;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder backpressured = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * @param capacity       ring size, rounded up to a power of two
+     * @param offerTimeoutMs how long a producer waits for space before dropping
+     */
+    public AlertPipeline(AlertStorage alertStorage, EventBroadcaster events, int capacity, long offerTimeoutMs) {
+        this.alertStorage = alertStorage;
+        this.events = events;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        this.worker = new Thread(this::run, "alert-pipeline");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queue an alert for a flagged transaction. Returns false if it was
+     * dropped because the ring stayed full. After close the alert is
+     * stored on the calling thread.
+     */
+    public boolean submit(Transaction txn, FraudDecision decision) {
+        Pending item = new Pending(txn, decision);
+        long deadline = 0;
+        while (running) {
+            long t = tail.get();
+            if (t - head < ring.length()) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    ring.set((int) t & mask, item);
+                    submitted.increment();
+                    if (parked) {
+                        LockSupport.unpark(worker);
+                    }
+                    return true;
+                }
+                continue;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                backpressured.increment();
+                deadline = now + offerTimeoutNanos;
+            } else if (now - deadline >= 0) {
+                dropped.increment();
+                return false;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        submitted.increment();
+        process(List.of(item));
+        return true;
+    }
+
+    private void run() {
+        List<Pending> items = new ArrayList<>(BATCH_SIZE);
+        long h = head;
+        while (true) {
+            Pending item;
+            while (items.size() < BATCH_SIZE && (item = ring.get((int) h & mask)) != null) {
+                ring.set((int) h & mask, null);
+                items.add(item);
+                h++;
+            }
+            if (!items.isEmpty()) {
+                head = h; // free the slots before the slow part
+                process(items);
+                processed = h;
+                items.clear();
+                continue;
+            }
+            if (!running && tail.get() == h) {
+                return;
+            }
+            parked = true;
+            if (ring.get((int) h & mask) == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            parked = false;
+        }
+    }
+
+    private void process(List<Pending> items) {
+        List<FraudAlert> alerts = new ArrayList<>(items.size());
+        for (Pending item : items) {
+            alerts.add(FraudAlert.forDecision(item.txn, item.decision));
+        }
+        List<FraudAlert> raised;
+        try {
+            raised = alertStorage.raiseAlerts(alerts);
+        } catch (RuntimeException e) {
+            failed.add(alerts.size());
+            System.err.println("Failed to store " + alerts.size() + " alerts: " + e.getMessage());
+            return;
+        }
+        stored.add(alerts.size());
+        batches.increment();
+        if (events != null) {
+            for (FraudAlert alert : raised) {
+                events.publish("alert", alert);
+            }
+        }
+    }
+
+    /**
+     * Wait until everything queued before the call has been handled.
+     * Returns false on timeout.
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (processed < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.unpark(worker);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of alerts waiting in the ring
+     */
+    public long getDepth() {
+        return tail.get() - head;
+    }
+
+    public int getCapacity() {
+        return ring.length();
+    }
+
+    /**
+     * Get queue depth and counters for the stats endpoint
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("depth", getDepth());
+        stats.put("capacity", (long) getCapacity());
+        stats.put("submitted", submitted.sum());
+        stats.put("stored", stored.sum());
+        stats.put("batches", batches.sum());
+        stats.put("backpressured", backpressured.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    /**
+     * Stop taking new alerts onto the ring and drain what is queued
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // A producer may have claimed a slot just as the worker stopped
+        long h = head;
+        while (!worker.isAlive() && h < tail.get()) {
+            Pending item;
+            while ((item = ring.get((int) h & mask)) == null) {
+                Thread.onSpinWait();
+            }
+            ring.set((int) h & mask, null);
+            head = ++h;
+            process(List.of(item));
+            processed = h;
+        }
+    }
+
+    private static final class Pending {
+        final Transaction txn;
+        final FraudDecision decision;
+
+        Pending(Transaction txn, FraudDecision decision) {
+            this.txn = txn;
+            this.decision = decision;
+        }
+    }
+}
@@ -1,21 +1,224 @@
 package fraud;
 
+import java.io.Closeable;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * In-memory storage for fraud alerts with CRUD operations.
+ * Alerts are also kept in a skip list by insertion sequence number, so
+ * newest-first pages can start at a cursor without sorting or copying.
+ * <p>
+ * New alerts raised through {@link #raiseAlerts} are coalesced: within the
+ * window after a user's first alert for a set of rules, further alerts for
+ * the same user and rules only bump that alert's count, last-seen time and
+ * maximum risk score, and move it to the newest position. A burst from one
+ * user is one entry, not hundreds.
+ * <p>
+ * Secondary indexes map each status, severity, alert type and user to the
+ * sequence numbers of its alerts, so filtered queries and status changes
+ * touch only the matching alerts. A time index orders alerts by
+ * (timestamp, seq), so pages filtered only by time cost O(page). A
+ * background sweeper deletes alerts not seen within the retention period,
+ * oldest first.
  */
-public class AlertStorage {
-    private final Map<String, FraudAlert> alerts = new ConcurrentHashMap<>();
+public class AlertStorage implements Iterable<FraudAlert>, Closeable {
+    private final Map<String, Long> sequences = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, FraudAlert> alerts = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextSeq = new AtomicLong();
+    private final Duration coalesceWindow;
+    // Alerts still taking duplicates, by user and rules, oldest first; guarded by itself
+    private final LinkedHashMap<String, FraudAlert> open = new LinkedHashMap<>();
+    private final Index byStatus = new Index(FraudAlert::getStatus);
+    private final Index bySeverity = new Index(FraudAlert::getSeverity);
+    private final Index byType = new Index(FraudAlert::getAlertType);
+    private final Index byUser = new Index(FraudAlert::getUserId);
+    private final ConcurrentSkipListSet<TimeKey> byTime = new ConcurrentSkipListSet<>();
+    private volatile WriteAheadLog wal;
+    private ScheduledExecutorService sweeper;
+
+    public AlertStorage() {
+        this(Duration.ofSeconds(Long.getLong("fraud.alerts.coalesceWindowSec", 300)));
+    }
+
+    /**
+     * @param coalesceWindow how long an alert takes duplicates; zero disables coalescing
+     */
+    public AlertStorage(Duration coalesceWindow) {
+        this.coalesceWindow = coalesceWindow;
+    }
+
+    /**
+     * Log every change from now on. Attach after replaying the log.
+     * Changes are applied in memory first, then logged, and only return
+     * once the log is synced.
+     */
+    public void setWriteAheadLog(WriteAheadLog wal) {
+        this.wal = wal;
+    }
 
     /**
      * Add a new alert.
      */
     public FraudAlert addAlert(FraudAlert alert) {
+        prepare(alert);
+        store(alert);
+        WriteAheadLog log = wal;
+        if (log != null) {
+            log.sync(log.logAlert(alert));
+        }
+        return alert;
+    }
+
+    /**
+     * Add a batch of alerts.
+     */
+    public void addAlerts(List<FraudAlert> batch) {
+        WriteAheadLog log = wal;
+        long lsn = 0;
+        for (FraudAlert alert : batch) {
+            prepare(alert);
+            store(alert);
+            if (log != null) {
+                lsn = log.logAlert(alert);
+            }
+        }
+        if (log != null && lsn > 0) {
+            log.sync(lsn);
+        }
+    }
+
+    /**
+     * Add newly raised alerts, coalescing duplicates into open alerts.
+     * Returns the alerts that were added or updated, in order.
+     */
+    public List<FraudAlert> raiseAlerts(List<FraudAlert> batch) {
+        if (coalesceWindow.isZero()) {
+            addAlerts(batch);
+            return batch;
+        }
+        Set<FraudAlert> touched = new LinkedHashSet<>();
+        synchronized (open) {
+            for (FraudAlert alert : batch) {
+                prepare(alert);
+                String key = alert.getUserId() + "|" + ruleKey(alert.getTriggeredRules());
+                FraudAlert aggregate = openAlert(key, alert.getTimestamp());
+                if (aggregate != null) {
+                    synchronized (aggregate) {
+                        String severity = aggregate.getSeverity();
+                        merge(aggregate, alert);
+                        Long seq = sequences.get(aggregate.getAlertId());
+                        if (seq != null) {
+                            bySeverity.move(severity, aggregate, seq);
+                        }
+                    }
+                    alert = aggregate;
+                } else {
+                    open.put(key, alert);
+                }
+                store(alert);
+                touched.add(alert);
+            }
+        }
+
+        WriteAheadLog log = wal;
+        if (log != null && !touched.isEmpty()) {
+            long lsn = 0;
+            for (FraudAlert alert : touched) {
+                lsn = log.logAlert(alert);
+            }
+            log.sync(lsn);
+        }
+        return new ArrayList<>(touched);
+    }
+
+    /**
+     * Find the alert still taking duplicates for key, closing expired ones
+     */
+    private FraudAlert openAlert(String key, Instant now) {
+        Iterator<FraudAlert> oldest = open.values().iterator();
+        while (oldest.hasNext() && isClosed(oldest.next(), now)) {
+            oldest.remove();
+        }
+        FraudAlert aggregate = open.get(key);
+        if (aggregate != null && (isClosed(aggregate, now) || !"NEW".equals(aggregate.getStatus())
+                || getAlert(aggregate.getAlertId()) != aggregate)) {
+            open.remove(key); // expired, being worked on or deleted
+            return null;
+        }
+        return aggregate;
+    }
+
+    private boolean isClosed(FraudAlert aggregate, Instant now) {
+        return !now.isBefore(aggregate.getFirstSeen().plus(coalesceWindow));
+    }
+
+    private static String ruleKey(List<String> rules) {
+        if (rules.size() < 2) {
+            return rules.isEmpty() ? "" : rules.get(0);
+        }
+        List<String> sorted = new ArrayList<>(rules);
+        Collections.sort(sorted);
+        return String.join(",", sorted);
+    }
+
+    private static void merge(FraudAlert aggregate, FraudAlert alert) {
+        aggregate.setCount(aggregate.getCount() + alert.getCount());
+        if (alert.getLastSeen().isAfter(aggregate.getLastSeen())) {
+            aggregate.setLastSeen(alert.getLastSeen());
+        }
+        if (alert.getRiskScore() > aggregate.getRiskScore()) {
+            aggregate.setRiskScore(alert.getRiskScore());
+            aggregate.setSeverity(severity(alert.getRiskScore()));
+        }
+    }
+
+    private void store(FraudAlert alert) {
+        synchronized (alert) {
+            long seq = nextSeq.getAndIncrement();
+            alerts.put(seq, alert);
+            index(alert, seq);
+            Long previous = sequences.put(alert.getAlertId(), seq);
+            if (previous != null) {
+                FraudAlert replaced = alerts.remove(previous);
+                if (replaced != null) {
+                    unindex(replaced, previous);
+                }
+            }
+        }
+    }
+
+    private void index(FraudAlert alert, long seq) {
+        byStatus.add(alert, seq);
+        bySeverity.add(alert, seq);
+        byType.add(alert, seq);
+        byUser.add(alert, seq);
+        byTime.add(new TimeKey(alert.getTimestamp(), seq));
+    }
+
+    private void unindex(FraudAlert alert, long seq) {
+        byStatus.remove(alert, seq);
+        bySeverity.remove(alert, seq);
+        byType.remove(alert, seq);
+        byUser.remove(alert, seq);
+        byTime.remove(new TimeKey(alert.getTimestamp(), seq));
+    }
+
+    /**
+     * Fill in defaults, alert type and severity.
+     */
+    private void prepare(FraudAlert alert) {
         if (alert.getAlertId() == null) {
-            alert.setAlertId("ALT-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+            alert.setAlertId(IdGenerator.shared().next("ALT-"));
         }
         if (alert.getTimestamp() == null) {
             alert.setTimestamp(Instant.now());
@@ -23,6 +226,15 @@ public class AlertStorage {
         if (alert.getCreatedAt() == null) {
             alert.setCreatedAt(Instant.now());
         }
+        if (alert.getCount() == 0) {
+            alert.setCount(1);
+        }
+        if (alert.getFirstSeen() == null) {
+            alert.setFirstSeen(alert.getTimestamp());
+        }
+        if (alert.getLastSeen() == null) {
+            alert.setLastSeen(alert.getFirstSeen());
+        }
         if (alert.getStatus() == null) {
             alert.setStatus("NEW");
         }
@@ -49,26 +261,27 @@ public class AlertStorage {
 
         // Set severity based on risk score
         if (alert.getSeverity() == null) {
-            if (alert.getRiskScore() >= 80) {
-                alert.setSeverity("CRITICAL");
-            } else if (alert.getRiskScore() >= 60) {
-                alert.setSeverity("HIGH");
-            } else if (alert.getRiskScore() >= 40) {
-                alert.setSeverity("MEDIUM");
-            } else {
-                alert.setSeverity("LOW");
-            }
+            alert.setSeverity(severity(alert.getRiskScore()));
         }
+    }
 
-        alerts.put(alert.getAlertId(), alert);
-        return alert;
+    private static String severity(double riskScore) {
+        if (riskScore >= 80) {
+            return "CRITICAL";
+        } else if (riskScore >= 60) {
+            return "HIGH";
+        } else if (riskScore >= 40) {
+            return "MEDIUM";
+        }
+        return "LOW";
     }
 
     /**
      * Get alert by ID.
      */
     public FraudAlert getAlert(String alertId) {
-        return alerts.get(alertId);
+        Long seq = sequences.get(alertId);
+        return seq != null ? alerts.get(seq) : null;
     }
 
     /**
@@ -82,16 +295,234 @@ public class AlertStorage {
      * Delete alert by ID.
      */
     public boolean deleteAlert(String alertId) {
-        return alerts.remove(alertId) != null;
+        if (!remove(alertId)) {
+            return false;
+        }
+        WriteAheadLog log = wal;
+        if (log != null) {
+            log.sync(log.logAlertDelete(alertId));
+        }
+        return true;
+    }
+
+    private boolean remove(String alertId) {
+        Long seq = sequences.remove(alertId);
+        FraudAlert alert = seq != null ? alerts.remove(seq) : null;
+        if (alert == null) {
+            return false;
+        }
+        synchronized (alert) {
+            unindex(alert, seq);
+        }
+        return true;
+    }
+
+    /**
+     * Delete alerts last seen before cutoff, then the oldest beyond
+     * maxAlerts. Alerts are walked oldest first and the walk stops at the
+     * first one kept, so the cost is proportional to what is deleted.
+     * Returns the number deleted.
+     */
+    public int expire(Instant cutoff, int maxAlerts) {
+        List<String> expired = new ArrayList<>();
+        int count = sequences.size();
+        for (FraudAlert alert : alerts.values()) {
+            Instant seen = alert.getLastSeen() != null ? alert.getLastSeen() : alert.getTimestamp();
+            if (count - expired.size() <= maxAlerts && (seen == null || !seen.isBefore(cutoff))) {
+                break;
+            }
+            expired.add(alert.getAlertId());
+        }
+
+        WriteAheadLog log = wal;
+        long lsn = 0;
+        int removed = 0;
+        for (String alertId : expired) {
+            if (remove(alertId)) {
+                removed++;
+                if (log != null) {
+                    lsn = log.logAlertDelete(alertId);
+                }
+            }
+        }
+        if (log != null && lsn > 0) {
+            log.sync(lsn);
+        }
+        return removed;
+    }
+
+    /**
+     * Expire alerts in the background, keeping those seen within retention
+     * and at most maxAlerts
+     */
+    public synchronized void startSweeper(Duration retention, int maxAlerts, long intervalSeconds) {
+        if (intervalSeconds <= 0 || sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alert-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                int removed = expire(Instant.now().minus(retention), maxAlerts);
+                if (removed > 0) {
+                    System.out.println("Expired " + removed + " alerts");
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Alert sweep failed: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop the background sweeper
+     */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Get a page of alerts, newest first, optionally filtered by status, user
+     * and from <= timestamp < to. Pass the previous page's cursor to
+     * continue; null filters and a null cursor are open.
+     */
+    public Page<FraudAlert> findAlerts(String status, String userId, Instant from, Instant to,
+            String cursor, int limit) {
+        return findAlerts(status, null, null, userId, from, to, cursor, limit);
+    }
+
+    /**
+     * Get a page of alerts, newest first, also filtered by severity and
+     * alert type. The walk follows the index of the most selective filter
+     * given (user, then type, severity, status). With only from and to, the
+     * page comes from the time index and is ordered by timestamp instead.
+     */
+    public Page<FraudAlert> findAlerts(String status, String severity, String alertType, String userId,
+            Instant from, Instant to, String cursor, int limit) {
+        if (status == null && severity == null && alertType == null && userId == null
+                && (from != null || to != null)) {
+            return findAlertsByTime(from, to, cursor, limit);
+        }
+        NavigableSet<Long> seqs;
+        if (userId != null) {
+            seqs = byUser.get(userId);
+        } else if (alertType != null) {
+            seqs = byType.get(alertType);
+        } else if (severity != null) {
+            seqs = bySeverity.get(severity);
+        } else if (status != null) {
+            seqs = byStatus.get(status);
+        } else {
+            seqs = alerts.keySet();
+        }
+        seqs = seqs.descendingSet();
+        if (cursor != null) {
+            try {
+                seqs = seqs.tailSet(Long.parseLong(Page.decodeCursor('a', cursor)), false);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+        }
+
+        List<FraudAlert> items = new ArrayList<>(Math.min(limit, 256));
+        long lastSeq = -1;
+        for (Long seq : seqs) {
+            FraudAlert alert = alerts.get(seq);
+            if (alert == null || !matches(alert, status, severity, alertType, userId, from, to)) {
+                continue; // removed or changed since the index was read
+            }
+            if (items.size() == limit) {
+                return new Page<>(items, Page.encodeCursor('a', Long.toString(lastSeq)));
+            }
+            items.add(alert);
+            lastSeq = seq;
+        }
+        return new Page<>(items, null);
+    }
+
+    /**
+     * Get a page of alerts with from <= timestamp < to, latest timestamp
+     * first, starting right after the cursor's position in the time index
+     */
+    private Page<FraudAlert> findAlertsByTime(Instant from, Instant to, String cursor, int limit) {
+        TimeKey upper = to != null ? new TimeKey(to, Long.MIN_VALUE) : null;
+        if (cursor != null) {
+            TimeKey after = parseTimeCursor(cursor);
+            if (upper == null || after.compareTo(upper) < 0) {
+                upper = after;
+            }
+        }
+        NavigableSet<TimeKey> keys = byTime;
+        if (upper != null) {
+            keys = keys.headSet(upper, false);
+        }
+        if (from != null) {
+            TimeKey lower = new TimeKey(from, Long.MIN_VALUE);
+            if (upper != null && lower.compareTo(upper) >= 0) {
+                return new Page<>(new ArrayList<>(), null);
+            }
+            keys = keys.tailSet(lower, true);
+        }
+
+        List<FraudAlert> items = new ArrayList<>(Math.min(limit, 256));
+        TimeKey last = null;
+        for (TimeKey key : keys.descendingSet()) {
+            FraudAlert alert = alerts.get(key.seq);
+            if (alert == null) {
+                continue; // removed since the index was read
+            }
+            if (items.size() == limit) {
+                return new Page<>(items, Page.encodeCursor('t',
+                        last.timestamp.getEpochSecond() + "." + last.timestamp.getNano() + "." + last.seq));
+            }
+            items.add(alert);
+            last = key;
+        }
+        return new Page<>(items, null);
+    }
+
+    private static TimeKey parseTimeCursor(String cursor) {
+        String[] parts = Page.decodeCursor('t', cursor).split("\\.");
+        try {
+            return new TimeKey(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                    Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static boolean matches(FraudAlert alert, String status, String severity, String alertType,
+            String userId, Instant from, Instant to) {
+        return (status == null || status.equals(alert.getStatus()))
+                && (severity == null || severity.equals(alert.getSeverity()))
+                && (alertType == null || alertType.equals(alert.getAlertType()))
+                && (userId == null || userId.equals(alert.getUserId()))
+                && (from == null || !alert.getTimestamp().isBefore(from))
+                && (to == null || alert.getTimestamp().isBefore(to));
+    }
+
+    /**
+     * Iterate over alerts, oldest first.
+     */
+    @Override
+    public Iterator<FraudAlert> iterator() {
+        return alerts.values().iterator();
     }
 
     /**
      * Update alert status.
      */
     public boolean updateAlertStatus(String alertId, String status) {
-        FraudAlert alert = alerts.get(alertId);
+        FraudAlert alert = getAlert(alertId);
         if (alert != null) {
-            alert.setStatus(status);
+            setStatus(alert, status, alert.getResolution());
+            logStatus(alert);
             return true;
         }
         return false;
@@ -101,20 +532,50 @@ public class AlertStorage {
      * Resolve alert.
      */
     public boolean resolveAlert(String alertId, String resolution) {
-        FraudAlert alert = alerts.get(alertId);
+        FraudAlert alert = getAlert(alertId);
         if (alert != null) {
-            alert.setStatus("RESOLVED");
-            alert.setResolution(resolution);
+            setStatus(alert, "RESOLVED", resolution);
+            logStatus(alert);
             return true;
         }
         return false;
     }
 
+    /**
+     * Apply a logged status change without logging it again, keeping the
+     * status index in step
+     */
+    void restoreStatus(String alertId, String status, String resolution) {
+        FraudAlert alert = getAlert(alertId);
+        if (alert != null) {
+            setStatus(alert, status, resolution);
+        }
+    }
+
+    private void setStatus(FraudAlert alert, String status, String resolution) {
+        synchronized (alert) {
+            String previous = alert.getStatus();
+            alert.setStatus(status);
+            alert.setResolution(resolution);
+            Long seq = sequences.get(alert.getAlertId());
+            if (seq != null) {
+                byStatus.move(previous, alert, seq);
+            }
+        }
+    }
+
+    private void logStatus(FraudAlert alert) {
+        WriteAheadLog log = wal;
+        if (log != null) {
+            log.sync(log.logAlertStatus(alert));
+        }
+    }
+
     /**
      * Get alert count.
      */
     public int getAlertCount() {
-        return alerts.size();
+        return sequences.size();
     }
 
     /**
@@ -122,8 +583,9 @@ public class AlertStorage {
      */
     public List<FraudAlert> getAlertsByStatus(String status) {
         List<FraudAlert> result = new ArrayList<>();
-        for (FraudAlert alert : alerts.values()) {
-            if (status.equals(alert.getStatus())) {
+        for (Long seq : byStatus.get(status)) {
+            FraudAlert alert = alerts.get(seq);
+            if (alert != null && status.equals(alert.getStatus())) {
                 result.add(alert);
             }
         }
@@ -134,6 +596,100 @@ public class AlertStorage {
      * Clear all alerts.
      */
     public void clear() {
+        synchronized (open) {
+            open.clear();
+        }
+        sequences.clear();
         alerts.clear();
+        for (Index index : new Index[] { byStatus, bySeverity, byType, byUser }) {
+            index.clear();
+        }
+    }
+
+    /**
+     * Sequence numbers of alerts by the value of one field, in order. Sets
+     * are created and dropped atomically with their first and last entry.
+     */
+    /**
+     * Position of an alert in the time index
+     */
+    private static final class TimeKey implements Comparable<TimeKey> {
+        final Instant timestamp;
+        final long seq;
+
+        TimeKey(Instant timestamp, long seq) {
+            this.timestamp = timestamp;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int byTimestamp = timestamp.compareTo(other.timestamp);
+            return byTimestamp != 0 ? byTimestamp : Long.compare(seq, other.seq);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TimeKey && compareTo((TimeKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(timestamp, seq);
+        }
+    }
+
+    private static final class Index {
+        private final Function<FraudAlert, String> field;
+        private final ConcurrentHashMap<String, ConcurrentSkipListSet<Long>> seqs = new ConcurrentHashMap<>();
+
+        Index(Function<FraudAlert, String> field) {
+            this.field = field;
+        }
+
+        NavigableSet<Long> get(String value) {
+            NavigableSet<Long> set = seqs.get(value);
+            return set != null ? set : Collections.emptyNavigableSet();
+        }
+
+        void add(FraudAlert alert, long seq) {
+            add(field.apply(alert), seq);
+        }
+
+        void remove(FraudAlert alert, long seq) {
+            remove(field.apply(alert), seq);
+        }
+
+        /**
+         * Re-file an alert whose field changed from previous; it is briefly
+         * under both values, never under neither
+         */
+        void move(String previous, FraudAlert alert, long seq) {
+            String value = field.apply(alert);
+            if (!Objects.equals(previous, value)) {
+                add(value, seq);
+                remove(previous, seq);
+            }
+        }
+
+        private void add(String value, long seq) {
+            if (value != null) {
+                seqs.compute(value, (k, set) -> {
+                    set = set != null ? set : new ConcurrentSkipListSet<>();
+                    set.add(seq);
+                    return set;
+                });
+            }
+        }
+
+        private void remove(String value, long seq) {
+            if (value != null) {
+                seqs.computeIfPresent(value, (k, set) -> set.remove(seq) && set.isEmpty() ? null : set);
+            }
+        }
+
+        void clear() {
+            seqs.clear();
+        }
     }
 }
@@ -0,0 +1,47 @@
+package fraud;
+
+/**
+ * Flags transactions whose amount exceeds the threshold.
+ */
+public class AmountRule implements Rule {
+    private final int threshold;
+
+    public AmountRule() {
+        this(1000); // $1000 threshold
+    }
+
+    public AmountRule(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String getName() {
+        return "amount_rule";
+    }
+
+    @Override
+    public int getDefaultThreshold() {
+        return 1000;
+    }
+
+    @Override
+    public double getRiskScore() {
+        return 30;
+    }
+
+    @Override
+    public Rule withThreshold(int threshold) {
+        return new AmountRule(threshold);
+    }
+
+    @Override
+    public double evaluate(Transaction transaction) {
+        double amount = transaction.getAmount();
+        return amount > threshold ? amount : NOT_TRIGGERED;
+    }
+
+    @Override
+    public String describe(double amount) {
+        return "Transaction amount $" + String.format("%.2f", amount) + " exceeds threshold";
+    }
+}
@@ -6,9 +6,20 @@ import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * API handler for all /api/* endpoints.
@@ -18,16 +29,111 @@ public class ApiHttpHandler implements HttpHandler {
     private final TransactionStorage transactionStorage;
     private final AlertStorage alertStorage;
     private final RuleEngine ruleEngine;
-    private final JsonHelper jsonHelper;
+    private final BatchScorer batchScorer;
+    private final RollingMetrics rollingMetrics;
+    private final EventBroadcaster events;
+    private final IdempotencyCache<FraudDecision> idempotency;
+    private final AlertPipeline alertPipeline;
+    private final ExecutorService streams;
+    private WriteAheadLog wal;
+    private SnapshotManager snapshots;
+
+    // Largest request body accepted, in bytes
+    private static final long MAX_REQUEST_BYTES = Long.getLong("fraud.http.maxRequestBytes", 1024 * 1024);
+    private static final long MAX_BATCH_BYTES = Long.getLong("fraud.http.maxBatchBytes", 16 * 1024 * 1024);
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("fraud.batch.maxSize", 10000);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = Integer.getInteger("fraud.api.maxPageSize", 1000);
+    // How long a retry waits for the first attempt of the same transaction
+    private static final long IDEMPOTENCY_WAIT_MILLIS = Long.getLong("fraud.idempotency.waitMs", 5000);
+    // Streamed responses are flushed to the client in chunks of about this size
+    private static final int STREAM_CHUNK_BYTES = 16 * 1024;
+    // Comment frame sent on idle streams so dead clients are noticed
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final long HEARTBEAT_SECONDS = 15;
+    // Open event streams, each holding one stream thread
+    private static final int MAX_STREAMS = Integer.getInteger("fraud.sse.maxSubscribers", 32);
+    private static final byte[] ITEMS_PREFIX = "{\"items\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEXT_CURSOR_PREFIX = ",\"nextCursor\":".getBytes(StandardCharsets.UTF_8);
 
     public ApiHttpHandler() {
         this.transactionStorage = new TransactionStorage();
         this.alertStorage = new AlertStorage();
         this.ruleEngine = new RuleEngine();
-        this.jsonHelper = new JsonHelper();
+        this.batchScorer = new BatchScorer(ruleEngine, transactionStorage, alertStorage);
+        this.rollingMetrics = new RollingMetrics();
+        this.events = new EventBroadcaster();
+        this.alertPipeline = new AlertPipeline(alertStorage, events, Integer.getInteger("fraud.alerts.queueSize", 8192),
+                Long.getLong("fraud.alerts.offerTimeoutMs", 100));
+        this.batchScorer.setEventBroadcaster(events);
+        this.batchScorer.setAlertPipeline(alertPipeline);
+        this.idempotency = new IdempotencyCache<>(Integer.getInteger("fraud.idempotency.maxEntries", 100_000),
+                Long.getLong("fraud.idempotency.ttlSec", 600), TimeUnit.SECONDS);
+        this.streams = newStreamExecutor(MAX_STREAMS);
+        openStorage(System.getProperty("fraud.wal.dir", "data/wal"),
+                System.getProperty("fraud.snapshot.dir", "data/snapshots"));
+        alertStorage.startSweeper(Duration.ofDays(Long.getLong("fraud.alerts.retentionDays", 90)),
+                Integer.getInteger("fraud.alerts.maxAlerts", 1_000_000),
+                Long.getLong("fraud.alerts.sweepIntervalSec", 60));
+
+        // Initialize with sample transactions on first start
+        if (transactionStorage.getTransactionCount() == 0) {
+            initializeSampleData();
+        }
+    }
 
-        // Initialize with sample transactions
-        initializeSampleData();
+    /**
+     * Restore storage from the latest snapshot and the log after it, then
+     * log every change and snapshot periodically. An empty log directory
+     * setting runs in memory only.
+     */
+    private void openStorage(String walDir, String snapshotDir) {
+        if (walDir.isEmpty()) {
+            return;
+        }
+        try {
+            wal = new WriteAheadLog(Path.of(walDir));
+            snapshots = new SnapshotManager(Path.of(snapshotDir), wal, transactionStorage, alertStorage,
+                    ruleEngine);
+            long replayed = snapshots.recover();
+            System.out.println("Replayed " + replayed + " log records from " + walDir);
+            transactionStorage.setWriteAheadLog(wal);
+            alertStorage.setWriteAheadLog(wal);
+            snapshots.start(Long.getLong("fraud.snapshot.intervalSec", 300));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open storage in " + walDir, e);
+        }
+    }
+
+    /**
+     * Drain queued alerts, take a final snapshot and close the write-ahead log
+     */
+    public void close() throws IOException {
+        streams.shutdownNow();
+        alertPipeline.close();
+        alertStorage.close();
+        if (wal != null) {
+            snapshots.close();
+            snapshots.snapshot();
+            wal.close();
+        }
+    }
+
+    /**
+     * Threads for event streams, separate from the request executor so open
+     * dashboards never starve API requests. At most max streams run at once;
+     * the rest are rejected.
+     */
+    private static ExecutorService newStreamExecutor(int max) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(max, max, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread thread = new Thread(r, "event-stream-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     private void initializeSampleData() {
@@ -38,6 +144,7 @@ public class ApiHttpHandler implements HttpHandler {
         String[] merchants = { "Amazon", "Walmart", "Target", "BestBuy", "Costco" };
 
         Random random = new Random(42);
+        List<Transaction> sample = new ArrayList<>();
         for (int i = 0; i < 100; i++) {
             Transaction txn = new Transaction();
             txn.setTransactionId("TXN-" + String.format("%04d", i + 1));
@@ -49,8 +156,9 @@ public class ApiHttpHandler implements HttpHandler {
             txn.setLocation(
                     new Location(cities[random.nextInt(cities.length)], countries[random.nextInt(countries.length)]));
 
-            transactionStorage.addTransaction(txn);
+            sample.add(txn);
         }
+        transactionStorage.addTransactions(sample);
     }
 
     @Override
@@ -71,6 +179,8 @@ public class ApiHttpHandler implements HttpHandler {
             } else if (path.startsWith("/api/transactions/") && method.equals("DELETE")) {
                 String id = path.substring("/api/transactions/".length());
                 handleDeleteTransaction(exchange, id);
+            } else if (path.equals("/api/transactions/batch") && method.equals("POST")) {
+                handleBatchTransactions(exchange);
             } else if (path.equals("/api/transactions/analyze") && method.equals("POST")) {
                 handleAnalyzeTransaction(exchange);
             } else if (path.equals("/api/alerts") && method.equals("GET")) {
@@ -86,52 +196,250 @@ public class ApiHttpHandler implements HttpHandler {
                 handleGetPatternStats(exchange);
             } else if (path.equals("/api/stats/geography") && method.equals("GET")) {
                 handleGetGeographyStats(exchange);
+            } else if (path.equals("/api/stream") && method.equals("GET")) {
+                handleStream(exchange);
             } else if (path.equals("/api/stats") && method.equals("GET")) {
                 handleGetStats(exchange);
             } else {
                 sendJsonResponse(exchange, 404, Map.of("error", "Not found: " + path));
             }
+        } catch (JsonParser.LimitExceededException e) {
+            sendError(exchange, 413, e.getMessage());
+        } catch (BadRequestException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IdempotencyCache.InFlightException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 409, e.getMessage());
         } catch (Exception e) {
             System.err.println("Error handling request: " + e.getMessage());
             e.printStackTrace();
-            sendJsonResponse(exchange, 500, Map.of("error", e.getMessage()));
+            sendError(exchange, 500, e.getMessage());
+        }
+    }
+
+    /**
+     * Answer a failed request with a JSON error. If a response is already
+     * under way, as for a streamed page, the exchange is closed instead, so
+     * the client sees a truncated body rather than a second status.
+     */
+    private void sendError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            exchange.close();
+            return;
         }
+        sendJsonResponse(exchange, status, Map.of("error", String.valueOf(message)));
     }
 
+    /**
+     * Without paging or filter parameters, stream every stored transaction
+     * as a plain array (oldest first). With any of limit, cursor, userId,
+     * from or to, return one page, newest first. Pages for a user cost
+     * O(page); a from/to filter without a userId walks the store from the
+     * newest end, skipping blocks whose timestamps are all out of range.
+     */
     private void handleGetTransactions(HttpExchange exchange) {
-        List<Transaction> transactions = transactionStorage.getAllTransactions();
-        sendJsonResponse(exchange, 200, transactions);
+        Map<String, String> query = parseQuery(exchange);
+        if (!hasAny(query, "limit", "cursor", "userId", "from", "to")) {
+            streamJsonArray(exchange, transactionStorage);
+            return;
+        }
+        Page<Transaction> page = transactionStorage.findTransactions(query.get("userId"),
+                parseInstant(query, "from"), parseInstant(query, "to"), query.get("cursor"), parseLimit(query));
+        streamPage(exchange, page);
     }
 
+    /**
+     * Store and score a transaction. A retry with the same transactionId
+     * within the idempotency window is not scored again: it gets 200 with
+     * the stored transaction, or the original decision once that is gone.
+     */
     private void handleCreateTransaction(HttpExchange exchange) throws IOException {
-        String body = readRequestBody(exchange);
-        Transaction txn = jsonHelper.fromJson(body, Transaction.class);
+        Transaction txn = readJson(exchange, Transaction.class);
 
         if (txn.getTransactionId() == null || txn.getTransactionId().isEmpty()) {
-            txn.setTransactionId("TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+            txn.setTransactionId(IdGenerator.shared().next("TXN-"));
+        }
+        String id = txn.getTransactionId();
+        FraudDecision original = idempotency.claim(id, IDEMPOTENCY_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        if (original != null) {
+            Transaction stored = transactionStorage.getTransaction(id);
+            sendJsonResponse(exchange, 200, stored != null ? stored : original);
+            return;
         }
         txn.setTimestamp(Instant.now());
 
-        transactionStorage.addTransaction(txn);
+        try {
+            transactionStorage.addTransaction(txn);
 
-        // Analyze the transaction
-        FraudDecision decision = ruleEngine.analyze(txn);
-        if (decision.isFraud()) {
-            FraudAlert alert = new FraudAlert();
-            alert.setAlertId("ALT-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
-            alert.setTransactionId(txn.getTransactionId());
-            alert.setUserId(txn.getUserId());
-            alert.setAmount(txn.getAmount());
-            alert.setRiskScore(decision.getRiskScore());
-            alert.setReasons(decision.getReasons());
-            alert.setTimestamp(Instant.now());
-            alert.setStatus("NEW");
-            alertStorage.addAlert(alert);
+            // Analyze the transaction
+            FraudDecision decision = ruleEngine.analyze(txn);
+            recordMetrics(txn, decision);
+            events.publish("decision", decision);
+            if (decision.isFraud()) {
+                alertPipeline.submit(txn, decision);
+            }
+            idempotency.finish(id, decision);
+        } catch (RuntimeException e) {
+            idempotency.abandon(id);
+            throw e;
         }
 
         sendJsonResponse(exchange, 201, txn);
     }
 
+    /**
+     * Ingest a JSON array or NDJSON stream of transactions and return the
+     * decisions in input order.
+     */
+    private void handleBatchTransactions(HttpExchange exchange) throws IOException {
+        List<Transaction> batch = new ArrayList<>();
+        try (InputStream is = openBody(exchange, MAX_BATCH_BYTES)) {
+            JsonParser parser = new JsonParser(is, MAX_BATCH_BYTES);
+            if (parser.peekToken() == JsonParser.Token.BEGIN_ARRAY) {
+                parser.beginArray();
+                while (parser.hasNext()) {
+                    addToBatch(batch, parser.read(Transaction.class));
+                }
+                parser.endArray();
+            }
+            // NDJSON: one object per line, newlines are just whitespace
+            while (parser.peekToken() != JsonParser.Token.END_DOCUMENT) {
+                addToBatch(batch, parser.read(Transaction.class));
+            }
+        }
+        if (batch.isEmpty()) {
+            sendJsonResponse(exchange, 400, Map.of("error", "Batch is empty"));
+            return;
+        }
+
+        // Retried transactions, in this batch or across requests, keep their
+        // original decision and are not stored or scored again. All ids are
+        // claimed up front so ids in flight elsewhere share one wait.
+        Map<String, Integer> claimed = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            String id = batch.get(i).getTransactionId();
+            if (id != null && !id.isEmpty()) {
+                claimed.putIfAbsent(id, i);
+            }
+        }
+        Map<String, FraudDecision> replayed = idempotency.claimAll(claimed.keySet(),
+                IDEMPOTENCY_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        claimed.keySet().removeAll(replayed.keySet());
+
+        FraudDecision[] decisions = new FraudDecision[batch.size()];
+        List<Transaction> fresh = new ArrayList<>();
+        List<FraudDecision> scored;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Transaction txn = batch.get(i);
+                String id = txn.getTransactionId();
+                Integer first = claimed.get(id);
+                decisions[i] = replayed.get(id);
+                if (decisions[i] == null && (first == null || first == i)) {
+                    fresh.add(txn);
+                }
+            }
+            scored = batchScorer.process(fresh);
+        } catch (RuntimeException e) {
+            // Release every key this batch owns, or their retries wait forever
+            claimed.keySet().forEach(idempotency::abandon);
+            throw e;
+        }
+
+        int fraudCount = 0;
+        for (int i = 0, next = 0; i < batch.size(); i++) {
+            Transaction txn = batch.get(i);
+            String id = txn.getTransactionId();
+            Integer first = id != null ? claimed.get(id) : null;
+            if (decisions[i] == null && (first == null || first == i)) {
+                decisions[i] = scored.get(next++);
+                recordMetrics(txn, decisions[i]);
+                if (first != null) {
+                    idempotency.finish(id, decisions[i]);
+                }
+            } else if (decisions[i] == null) {
+                decisions[i] = decisions[first];
+            }
+            if (decisions[i].isFraud()) {
+                fraudCount++;
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", decisions.length);
+        response.put("fraudCount", fraudCount);
+        response.put("decisions", Arrays.asList(decisions));
+        sendJsonResponse(exchange, 200, response);
+    }
+
+    /**
+     * Count a scored transaction in the rolling windows, at its own time but
+     * never in the future.
+     */
+    private void recordMetrics(Transaction txn, FraudDecision decision) {
+        long millis = Math.min(RuleEngine.epochMillis(txn), System.currentTimeMillis());
+        rollingMetrics.record(millis, txn.getAmount(), decision);
+    }
+
+    private void addToBatch(List<Transaction> batch, Transaction txn) {
+        if (txn == null) {
+            throw new BadRequestException("Batch item " + batch.size() + " is null");
+        }
+        if (batch.size() >= MAX_BATCH_SIZE) {
+            throw new JsonParser.LimitExceededException("Batch larger than " + MAX_BATCH_SIZE + " transactions");
+        }
+        batch.add(txn);
+    }
+
+    /**
+     * Server-Sent Events stream of new decisions and alerts. Clients resume
+     * with the Last-Event-ID header (or lastEventId parameter); if they fell
+     * too far behind, or their buffer overflowed, an "overflow" event says
+     * how many events were missed so they can refetch.
+     * <p>
+     * Streams run on their own threads and the request thread returns at
+     * once; beyond fraud.sse.maxSubscribers open streams the answer is 503.
+     */
+    private void handleStream(HttpExchange exchange) {
+        String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        if (lastEventId == null) {
+            lastEventId = parseQuery(exchange).get("lastEventId");
+        }
+        long resumeAfter = lastEventId != null ? parseLong("Last-Event-ID", lastEventId) : 0;
+        try {
+            streams.execute(() -> stream(exchange, resumeAfter));
+        } catch (RejectedExecutionException e) {
+            sendJsonResponse(exchange, 503, Map.of("error", "Too many open event streams"));
+        }
+    }
+
+    private void stream(HttpExchange exchange, long resumeAfter) {
+        EventBroadcaster.Subscriber subscriber = events.subscribe(resumeAfter);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        try (OutputStream os = exchange.getResponseBody()) {
+            exchange.sendResponseHeaders(200, 0);
+            while (true) {
+                EventBroadcaster.Event event = subscriber.next(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                long missed = subscriber.takeMissed();
+                if (missed > 0) {
+                    os.write(("event: overflow\ndata: {\"missed\":" + missed + "}\n\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                }
+                os.write(event != null ? event.toFrame() : HEARTBEAT);
+                os.flush();
+            }
+        } catch (IOException e) {
+            // Client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            events.unsubscribe(subscriber);
+        }
+    }
+
     private void handleGetTransaction(HttpExchange exchange, String id) {
         Transaction txn = transactionStorage.getTransaction(id);
         if (txn != null) {
@@ -151,8 +459,7 @@ public class ApiHttpHandler implements HttpHandler {
     }
 
     private void handleAnalyzeTransaction(HttpExchange exchange) throws IOException {
-        String body = readRequestBody(exchange);
-        Transaction txn = jsonHelper.fromJson(body, Transaction.class);
+        Transaction txn = readJson(exchange, Transaction.class);
 
         FraudDecision decision = ruleEngine.analyze(txn);
 
@@ -163,9 +470,19 @@ public class ApiHttpHandler implements HttpHandler {
         sendJsonResponse(exchange, 200, response);
     }
 
+    /**
+     * Same contract as GET /api/transactions, plus status, severity and type filters.
+     */
     private void handleGetAlerts(HttpExchange exchange) {
-        List<FraudAlert> alerts = alertStorage.getAllAlerts();
-        sendJsonResponse(exchange, 200, alerts);
+        Map<String, String> query = parseQuery(exchange);
+        if (!hasAny(query, "limit", "cursor", "status", "severity", "type", "userId", "from", "to")) {
+            streamJsonArray(exchange, alertStorage);
+            return;
+        }
+        Page<FraudAlert> page = alertStorage.findAlerts(query.get("status"), query.get("severity"),
+                query.get("type"), query.get("userId"), parseInstant(query, "from"), parseInstant(query, "to"),
+                query.get("cursor"), parseLimit(query));
+        streamPage(exchange, page);
     }
 
     private void handleDeleteAlert(HttpExchange exchange, String id) {
@@ -189,15 +506,17 @@ public class ApiHttpHandler implements HttpHandler {
     }
 
     private void handleUpdateRule(HttpExchange exchange) throws IOException {
-        String body = readRequestBody(exchange);
         @SuppressWarnings("unchecked")
-        Map<String, Object> request = jsonHelper.fromJson(body, Map.class);
+        Map<String, Object> request = readJson(exchange, Map.class);
 
-        String name = (String) request.get("name");
-        Boolean enabled = (Boolean) request.get("enabled");
+        Object name = request.get("name");
+        Object enabled = request.get("enabled");
 
-        if (name != null && enabled != null) {
-            ruleEngine.setRuleEnabled(name, enabled);
+        if (name instanceof String && enabled instanceof Boolean) {
+            ruleEngine.setRuleEnabled((String) name, (Boolean) enabled);
+            if (wal != null) {
+                wal.sync(wal.logRuleConfig(ruleEngine.getConfig()));
+            }
             sendJsonResponse(exchange, 200, Map.of("message", "Rule updated: " + name));
         } else {
             sendJsonResponse(exchange, 400, Map.of("error", "Invalid request: name and enabled required"));
@@ -205,113 +524,228 @@ public class ApiHttpHandler implements HttpHandler {
     }
 
     private void handleGetPatternStats(HttpExchange exchange) {
-        List<Transaction> transactions = transactionStorage.getAllTransactions();
-
-        // Hourly distribution
-        Map<Integer, Integer> hourlyDist = new HashMap<>();
-        for (int i = 0; i < 24; i++)
-            hourlyDist.put(i, 0);
-
-        // Amount range distribution
-        Map<String, Integer> amountRanges = new HashMap<>();
-        amountRanges.put("$0-$100", 0);
-        amountRanges.put("$100-$500", 0);
-        amountRanges.put("$500-$1000", 0);
-        amountRanges.put("$1000+", 0);
-
-        // Day of week distribution
-        String[] days = { "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday" };
-        Map<String, Integer> dayDist = new HashMap<>();
-        for (String day : days)
-            dayDist.put(day, 0);
-
-        int fraudCount = 0;
-        for (Transaction txn : transactions) {
-            // Hourly
-            int hour = txn.getTimestamp().atZone(java.time.ZoneId.systemDefault()).getHour();
-            hourlyDist.merge(hour, 1, Integer::sum);
-
-            // Amount range
-            if (txn.getAmount() < 100)
-                amountRanges.merge("$0-$100", 1, Integer::sum);
-            else if (txn.getAmount() < 500)
-                amountRanges.merge("$100-$500", 1, Integer::sum);
-            else if (txn.getAmount() < 1000)
-                amountRanges.merge("$500-$1000", 1, Integer::sum);
-            else
-                amountRanges.merge("$1000+", 1, Integer::sum);
-
-            // Day of week
-            String day = txn.getTimestamp().atZone(java.time.ZoneId.systemDefault()).getDayOfWeek().toString();
-            dayDist.merge(day, 1, Integer::sum);
+        String window = parseQuery(exchange).get("window");
+        if (window != null) {
+            handleGetWindowPatternStats(exchange, window);
+            return;
         }
+        TransactionStats aggregates = transactionStorage.getStats();
+
+        Map<Integer, Long> hourlyDist = new LinkedHashMap<>();
+        long[] hourly = aggregates.getHourlyDistribution();
+        for (int i = 0; i < hourly.length; i++)
+            hourlyDist.put(i, hourly[i]);
 
         Map<String, Object> stats = new HashMap<>();
         stats.put("hourlyDistribution", hourlyDist);
-        stats.put("amountRanges", amountRanges);
-        stats.put("dayOfWeek", dayDist);
-        stats.put("totalTransactions", transactions.size());
-        stats.put("fraudCount", fraudCount);
+        stats.put("amountRanges", aggregates.getAmountRanges());
+        stats.put("dayOfWeek", aggregates.getDayOfWeekDistribution());
+        stats.put("dailyDistribution", aggregates.getDailyDistribution());
+        stats.put("totalTransactions", aggregates.getCount());
+        stats.put("fraudCount", alertStorage.getAlertCount());
 
         sendJsonResponse(exchange, 200, stats);
     }
 
-    private void handleGetGeographyStats(HttpExchange exchange) {
-        List<Transaction> transactions = transactionStorage.getAllTransactions();
+    /**
+     * Patterns over the rolling window of transactions scored in the last
+     * 1m..90d (e.g. window=7d).
+     */
+    private void handleGetWindowPatternStats(HttpExchange exchange, String window) {
+        RollingMetrics.Window metrics = rollingMetrics.query(RollingMetrics.parseWindow(window));
+
+        Map<Integer, Long> hourlyDist = new LinkedHashMap<>();
+        long[] hourly = metrics.getHourlyDistribution();
+        for (int i = 0; i < hourly.length; i++)
+            hourlyDist.put(i, hourly[i]);
 
-        Map<String, Integer> countryFraud = new HashMap<>();
-        Map<String, Integer> cityFraud = new HashMap<>();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("window", window);
+        stats.put("hourlyDistribution", hourlyDist);
+        stats.put("amountRanges", metrics.getAmountRanges());
+        stats.put("dayOfWeek", metrics.getDayOfWeekDistribution());
+        stats.put("dailyDistribution", metrics.getDailyDistribution());
+        stats.put("totalTransactions", metrics.getCount());
+        stats.put("fraudCount", metrics.getFraudCount());
 
-        for (Transaction txn : transactions) {
-            if (txn.getLocation() != null) {
-                String country = txn.getLocation().getCountry() != null ? txn.getLocation().getCountry() : "Unknown";
-                String city = txn.getLocation().getCity() != null ? txn.getLocation().getCity() : "Unknown";
+        sendJsonResponse(exchange, 200, stats);
+    }
 
-                countryFraud.merge(country, 1, Integer::sum);
-                cityFraud.merge(city + ", " + country, 1, Integer::sum);
-            }
-        }
+    private void handleGetGeographyStats(HttpExchange exchange) {
+        TransactionStats aggregates = transactionStorage.getStats();
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("byCountry", countryFraud);
-        stats.put("byCity", cityFraud);
+        stats.put("byCountry", aggregates.getCountryDistribution());
+        stats.put("byCity", aggregates.getCityDistribution());
 
         sendJsonResponse(exchange, 200, stats);
     }
 
     private void handleGetStats(HttpExchange exchange) {
-        List<Transaction> transactions = transactionStorage.getAllTransactions();
-        List<FraudAlert> alerts = alertStorage.getAllAlerts();
-
-        double totalAmount = transactions.stream().mapToDouble(Transaction::getAmount).sum();
+        TransactionStats aggregates = transactionStorage.getStats();
+        String window = parseQuery(exchange).get("window");
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalTransactions", transactions.size());
-        stats.put("totalAlerts", alerts.size());
-        stats.put("totalAmount", totalAmount);
+        if (window != null) {
+            RollingMetrics.Window metrics = rollingMetrics.query(RollingMetrics.parseWindow(window));
+            stats.put("window", window);
+            stats.put("windowTransactions", metrics.getCount());
+            stats.put("windowAmount", metrics.getTotalAmount());
+            stats.put("windowFraudCount", metrics.getFraudCount());
+            stats.put("windowFraudByRule", metrics.getFraudByRule());
+        }
+        stats.put("totalTransactions", aggregates.getCount());
+        stats.put("totalAlerts", alertStorage.getAlertCount());
+        stats.put("totalAmount", aggregates.getTotalAmount());
         stats.put("enabledRules", ruleEngine.getEnabledRules().size());
+        stats.put("alertQueue", alertPipeline.getStats());
 
         sendJsonResponse(exchange, 200, stats);
     }
 
-    private String readRequestBody(HttpExchange exchange) throws IOException {
-        try (InputStream is = exchange.getRequestBody()) {
-            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    /**
+     * Parse the request body straight from the stream, rejecting oversized bodies.
+     */
+    private <T> T readJson(HttpExchange exchange, Class<T> type) throws IOException {
+        try (InputStream is = openBody(exchange, MAX_REQUEST_BYTES)) {
+            T value = JsonCodec.fromJson(is, type, MAX_REQUEST_BYTES);
+            if (value == null) {
+                throw new BadRequestException("Request body is empty");
+            }
+            return value;
+        }
+    }
+
+    private InputStream openBody(HttpExchange exchange, long maxBytes) {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null && parseLong("Content-Length", contentLength) > maxBytes) {
+            throw new JsonParser.LimitExceededException("Body larger than " + maxBytes + " bytes");
+        }
+        return exchange.getRequestBody();
+    }
+
+    private Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            if (!key.isEmpty() && !value.isEmpty()) {
+                params.put(key, value);
+            }
+        }
+        return params;
+    }
+
+    private static boolean hasAny(Map<String, String> query, String... keys) {
+        for (String key : keys) {
+            if (query.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int parseLimit(Map<String, String> query) {
+        String limit = query.get("limit");
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        long value = parseLong("limit", limit);
+        if (value < 1) {
+            throw new BadRequestException("limit must be positive");
+        }
+        return (int) Math.min(value, MAX_PAGE_SIZE);
+    }
+
+    private static long parseLong(String name, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private Instant parseInstant(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid " + name + " timestamp: " + value);
+        }
+    }
+
+    /**
+     * Send {"items":[...],"nextCursor":...} with chunked encoding.
+     */
+    private void streamPage(HttpExchange exchange, Page<?> page) {
+        streamJson(exchange, page.getItems(), page.getNextCursor(), true);
+    }
+
+    /**
+     * Send a JSON array with chunked encoding, writing items as they are iterated.
+     */
+    private void streamJsonArray(HttpExchange exchange, Iterable<?> items) {
+        streamJson(exchange, items, null, false);
+    }
+
+    private void streamJson(HttpExchange exchange, Iterable<?> items, String nextCursor, boolean paged) {
+        JsonWriter out = JsonWriter.acquire();
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                if (paged) {
+                    out.writeRaw(ITEMS_PREFIX);
+                }
+                out.writeByte('[');
+                boolean first = true;
+                for (Object item : items) {
+                    if (!first)
+                        out.writeByte(',');
+                    first = false;
+                    JsonCodec.write(out, item);
+                    if (out.size() >= STREAM_CHUNK_BYTES) {
+                        out.flushTo(os);
+                    }
+                }
+                out.writeByte(']');
+                if (paged) {
+                    out.writeRaw(NEXT_CURSOR_PREFIX);
+                    out.writeString(nextCursor);
+                    out.writeByte('}');
+                }
+                out.flushTo(os);
+            }
+        } catch (IOException e) {
+            System.err.println("Error sending response: " + e.getMessage());
+        } finally {
+            JsonWriter.release(out);
         }
     }
 
     private void sendJsonResponse(HttpExchange exchange, int status, Object data) {
+        JsonWriter out = JsonWriter.acquire();
         try {
-            String json = jsonHelper.toJson(data);
-            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            JsonCodec.write(out, data);
             exchange.getResponseHeaders().set("Content-Type", "application/json");
             exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
-            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.sendResponseHeaders(status, out.size());
             try (OutputStream os = exchange.getResponseBody()) {
-                os.write(bytes);
+                out.writeTo(os);
             }
         } catch (IOException e) {
             System.err.println("Error sending response: " + e.getMessage());
+        } finally {
+            JsonWriter.release(out);
         }
     }
 }
@@ -0,0 +1,14 @@
+package fraud;
+
+/**
+ * Malformed client input: invalid JSON, an unknown cursor, a bad query
+ * parameter. The API answers it with 400; any other exception is a server
+ * error.
+ */
+public class BadRequestException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
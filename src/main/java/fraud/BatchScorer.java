@@ -0,0 +1,121 @@
+package fraud;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Scores a batch of transactions in parallel and stores the results.
+ * <p>
+ * Items are partitioned by user, so every user's transactions are still
+ * scored one after another in input order (velocity and travel checks depend
+ * on it) while different users are scored on different cores. Decisions come
+ * back in input order. Transactions and alerts are then written to storage in
+ * one pass each rather than one request at a time.
+ */
+public class BatchScorer {
+    // Below this size the fork/join overhead outweighs the parallelism
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final RuleEngine ruleEngine;
+    private final TransactionStorage transactionStorage;
+    private final AlertStorage alertStorage;
+    private final int partitions;
+    private EventBroadcaster events;
+    private AlertPipeline alertPipeline;
+
+    public BatchScorer(RuleEngine ruleEngine, TransactionStorage transactionStorage, AlertStorage alertStorage) {
+        this(ruleEngine, transactionStorage, alertStorage, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchScorer(RuleEngine ruleEngine, TransactionStorage transactionStorage, AlertStorage alertStorage,
+            int partitions) {
+        this.ruleEngine = ruleEngine;
+        this.transactionStorage = transactionStorage;
+        this.alertStorage = alertStorage;
+        this.partitions = Math.max(1, partitions);
+    }
+
+    /**
+     * Publish decisions and alerts for every processed batch
+     */
+    public void setEventBroadcaster(EventBroadcaster events) {
+        this.events = events;
+    }
+
+    /**
+     * Hand alerts to the pipeline instead of storing them inline
+     */
+    public void setAlertPipeline(AlertPipeline alertPipeline) {
+        this.alertPipeline = alertPipeline;
+    }
+
+    /**
+     * Score, store and raise alerts for a batch. Returns one decision per
+     * transaction, in input order.
+     */
+    public List<FraudDecision> process(List<Transaction> batch) {
+        Instant now = Instant.now();
+        for (Transaction txn : batch) {
+            if (txn.getTransactionId() == null || txn.getTransactionId().isEmpty()) {
+                txn.setTransactionId(IdGenerator.shared().next("TXN-"));
+            }
+            if (txn.getTimestamp() == null) {
+                txn.setTimestamp(now);
+            }
+        }
+
+        FraudDecision[] decisions = score(batch);
+
+        transactionStorage.addTransactions(batch);
+        List<FraudAlert> alerts = new ArrayList<>();
+        for (int i = 0; i < decisions.length; i++) {
+            if (decisions[i].isFraud()) {
+                if (alertPipeline != null) {
+                    alertPipeline.submit(batch.get(i), decisions[i]);
+                } else {
+                    alerts.add(FraudAlert.forDecision(batch.get(i), decisions[i]));
+                }
+            }
+        }
+        alerts = alertStorage.raiseAlerts(alerts);
+
+        if (events != null) {
+            for (FraudDecision decision : decisions) {
+                events.publish("decision", decision);
+            }
+            for (FraudAlert alert : alerts) {
+                events.publish("alert", alert);
+            }
+        }
+
+        return List.of(decisions);
+    }
+
+    private FraudDecision[] score(List<Transaction> batch) {
+        FraudDecision[] decisions = new FraudDecision[batch.size()];
+        int n = batch.size() < PARALLEL_THRESHOLD ? 1 : Math.min(partitions, batch.size());
+        if (n == 1) {
+            for (int i = 0; i < decisions.length; i++) {
+                decisions[i] = ruleEngine.analyze(batch.get(i));
+            }
+            return decisions;
+        }
+
+        // Each partition walks the whole batch but only scores its own users
+        int[] partitionOf = new int[batch.size()];
+        for (int i = 0; i < partitionOf.length; i++) {
+            String userId = batch.get(i).getUserId();
+            partitionOf[i] = userId == null ? 0 : Math.floorMod(userId.hashCode(), n);
+        }
+        IntStream.range(0, n).parallel().forEach(p -> {
+            for (int i = 0; i < partitionOf.length; i++) {
+                if (partitionOf[i] == p) {
+                    decisions[i] = ruleEngine.analyze(batch.get(i));
+                }
+            }
+        });
+        return decisions;
+    }
+}
@@ -0,0 +1,228 @@
+package fraud;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans out live events (alerts, decisions) to stream subscribers.
+ * <p>
+ * Publishing never blocks: each subscriber has a bounded queue and when it
+ * is full the oldest event is dropped and counted, so a slow client only
+ * loses its own events and never stalls the scoring threads. Recent events
+ * are also kept in a fixed replay ring so a reconnecting client can resume
+ * after the last event id it saw. Event payloads are serialized on first
+ * delivery, so nothing is rendered while nobody is listening.
+ * <p>
+ * Ids are assigned and the replay ring written without locking, and with
+ * no subscribers that is all a publish does. The fan-out runs under a short
+ * lock and walks the ring in id order from the last event fanned out, so
+ * every subscriber sees events in id order even when publishers race; an
+ * event whose publisher has not written it yet is left to that publisher. If
+ * that publisher stalls until the ring wraps, its event is dropped and
+ * counted as missed like any other overflow.
+ */
+public class EventBroadcaster {
+    private final AtomicReferenceArray<Event> replay;
+    private final AtomicLong lastId = new AtomicLong();
+    private final Object publishLock = new Object();
+    private long fannedOut; // guarded by publishLock
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final int queueCapacity;
+
+    public EventBroadcaster() {
+        this(Integer.getInteger("fraud.sse.replaySize", 1024), Integer.getInteger("fraud.sse.queueSize", 256));
+    }
+
+    public EventBroadcaster(int replaySize, int queueCapacity) {
+        this.replay = new AtomicReferenceArray<>(replaySize);
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Publish an event to all current subscribers
+     */
+    public void publish(String type, Object data) {
+        Event event = new Event(lastId.incrementAndGet(), type, data);
+        // A publisher that stalled after taking its id must not overwrite a
+        // newer event that has since wrapped onto its slot
+        replay.accumulateAndGet(slot(event.id), event,
+                (current, e) -> current == null || current.id < e.id ? e : current);
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        synchronized (publishLock) {
+            fanOut();
+        }
+    }
+
+    /**
+     * Offer every written event after the last one fanned out, in id order,
+     * stopping at the first id whose publisher is still writing it.
+     */
+    private void fanOut() {
+        long newest = lastId.get();
+        long next = Math.max(fannedOut + 1, newest - replay.length() + 1);
+        if (next > fannedOut + 1) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.missed.add(next - fannedOut - 1); // overwritten before fan-out
+            }
+        }
+        for (; next <= newest; next++) {
+            Event event = replay.get(slot(next));
+            if (event == null || event.id != next) {
+                break;
+            }
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+            fannedOut = next;
+        }
+    }
+
+    private int slot(long id) {
+        return (int) (id % replay.length());
+    }
+
+    /**
+     * Subscribe, replaying retained events after lastEventId (0 for none).
+     */
+    public Subscriber subscribe(long lastEventId) {
+        Subscriber subscriber = new Subscriber(queueCapacity);
+        synchronized (publishLock) {
+            // Events up to fannedOut are in the replay ring; later ones are
+            // fanned out to this subscriber once it is registered. A publisher
+            // that saw no subscribers skipped its fan-out, so run it again
+            // after registering.
+            fanOut();
+            subscribers.add(subscriber);
+            long newest = fannedOut;
+            if (lastEventId > 0 && lastEventId < newest) {
+                long oldest = Math.max(lastEventId + 1, newest - replay.length() + 1);
+                if (oldest > lastEventId + 1) {
+                    subscriber.missed.add(oldest - lastEventId - 1); // older than the replay ring
+                }
+                for (long id = oldest; id <= newest; id++) {
+                    Event event = replay.get(slot(id));
+                    if (event != null && event.id == id) {
+                        subscriber.backlog.add(event);
+                    }
+                }
+            }
+            subscriber.lastSentId = Math.min(lastEventId, newest);
+            fanOut();
+        }
+        return subscriber;
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getLastEventId() {
+        return lastId.get();
+    }
+
+    /**
+     * One published event.
+     */
+    public static final class Event {
+        private final long id;
+        private final String type;
+        private final Object data;
+        private volatile byte[] encoded;
+
+        Event(long id, String type, Object data) {
+            this.id = id;
+            this.type = type;
+            this.data = data;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Get the event as an SSE frame, rendered once and shared
+         */
+        public byte[] toFrame() {
+            byte[] frame = encoded;
+            if (frame == null) {
+                frame = ("id: " + id + "\nevent: " + type + "\ndata: " + JsonCodec.toJson(data) + "\n\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                encoded = frame;
+            }
+            return frame;
+        }
+    }
+
+    /**
+     * A subscriber's bounded queue of pending events.
+     */
+    public static final class Subscriber {
+        private final BlockingQueue<Event> queue;
+        private final Deque<Event> backlog = new ArrayDeque<>();
+        private final LongAdder missed = new LongAdder();
+        private long lastSentId;
+
+        Subscriber(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void offer(Event event) {
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) {
+                    missed.increment(); // drop oldest
+                }
+            }
+        }
+
+        /**
+         * Wait for the next event not yet sent, or return null on timeout.
+         * Replayed events come first.
+         */
+        public Event next(long timeout, TimeUnit unit) throws InterruptedException {
+            while (!backlog.isEmpty()) {
+                Event event = backlog.poll();
+                if (event.id > lastSentId) {
+                    lastSentId = event.id;
+                    return event;
+                }
+            }
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (true) {
+                Event event = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (event == null) {
+                    return null;
+                }
+                if (event.id > lastSentId) {
+                    lastSentId = event.id;
+                    return event;
+                }
+            }
+        }
+
+        /**
+         * Take the number of events dropped since the last call
+         */
+        public long takeMissed() {
+            return missed.sumThenReset();
+        }
+    }
+}
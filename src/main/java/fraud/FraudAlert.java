@@ -21,6 +21,9 @@ public class FraudAlert {
     private String severity;
     private Instant createdAt;
     private String resolution;
+    private int count;
+    private Instant firstSeen;
+    private Instant lastSeen;
 
     public FraudAlert() {
     }
@@ -136,4 +139,48 @@ public class FraudAlert {
     public void setResolution(String resolution) {
         this.resolution = resolution;
     }
+
+    /**
+     * Get how many alerts were coalesced into this one
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public Instant getFirstSeen() {
+        return firstSeen;
+    }
+
+    public void setFirstSeen(Instant firstSeen) {
+        this.firstSeen = firstSeen;
+    }
+
+    public Instant getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(Instant lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+
+    /**
+     * Create a new alert for a transaction flagged as fraud.
+     */
+    public static FraudAlert forDecision(Transaction txn, FraudDecision decision) {
+        FraudAlert alert = new FraudAlert();
+        alert.setAlertId(IdGenerator.shared().next("ALT-"));
+        alert.setTransactionId(txn.getTransactionId());
+        alert.setUserId(txn.getUserId());
+        alert.setAmount(txn.getAmount());
+        alert.setRiskScore(decision.getRiskScore());
+        alert.setReasons(decision.getReasons());
+        alert.setTriggeredRules(decision.getTriggeredRules());
+        alert.setTimestamp(Instant.now());
+        alert.setStatus("NEW");
+        return alert;
+    }
 }
@@ -1,24 +1,58 @@
 package fraud;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Fraud decision result from the rule engine.
+ * <p>
+ * Decisions produced by the {@link RulePipeline} keep only compact rule codes
+ * (a bitmask over the pipeline's rule array) and one primitive detail value
+ * per triggered rule. Reason strings and rule names are rendered on first
+ * access, e.g. when the decision is serialized or turned into an alert.
  */
 public class FraudDecision {
+    private static final List<String> PASSED = List.of("Transaction passed all checks");
+
     private final String transactionId;
     private final boolean fraud;
     private final double riskScore;
-    private final List<String> reasons;
-    private final List<String> triggeredRules;
+    private volatile List<String> reasons;
+    private volatile List<String> triggeredRules;
+    private final long configVersion;
+
+    // Compact form: bit i set means rules[i] fired with details[i]
+    private final transient Rule[] rules;
+    private final transient long triggeredMask;
+    private final transient double[] details;
 
     public FraudDecision(String transactionId, boolean fraud, double riskScore,
             List<String> reasons, List<String> triggeredRules) {
+        this(transactionId, fraud, riskScore, reasons, triggeredRules, 0);
+    }
+
+    public FraudDecision(String transactionId, boolean fraud, double riskScore,
+            List<String> reasons, List<String> triggeredRules, long configVersion) {
         this.transactionId = transactionId;
         this.fraud = fraud;
         this.riskScore = riskScore;
         this.reasons = reasons;
         this.triggeredRules = triggeredRules;
+        this.configVersion = configVersion;
+        this.rules = null;
+        this.triggeredMask = 0;
+        this.details = null;
+    }
+
+    FraudDecision(String transactionId, boolean fraud, double riskScore,
+            Rule[] rules, long triggeredMask, double[] details, long configVersion) {
+        this.transactionId = transactionId;
+        this.fraud = fraud;
+        this.riskScore = riskScore;
+        this.configVersion = configVersion;
+        this.rules = rules;
+        this.triggeredMask = triggeredMask;
+        this.details = details;
     }
 
     public String getTransactionId() {
@@ -34,16 +68,80 @@ public class FraudDecision {
     }
 
     public List<String> getReasons() {
-        return reasons;
+        List<String> result = reasons;
+        if (result == null) {
+            result = renderReasons();
+            reasons = result;
+        }
+        return result;
     }
 
     public List<String> getTriggeredRules() {
-        return triggeredRules;
+        List<String> result = triggeredRules;
+        if (result == null) {
+            result = renderTriggeredRules();
+            triggeredRules = result;
+        }
+        return result;
+    }
+
+    /**
+     * Version of the rule configuration that produced this decision.
+     */
+    public long getConfigVersion() {
+        return configVersion;
+    }
+
+    /**
+     * Check whether any rule fired, without rendering rule names.
+     */
+    public boolean hasTriggeredRules() {
+        return rules != null ? triggeredMask != 0 : !triggeredRules.isEmpty();
+    }
+
+    /**
+     * Get the rules of the pipeline that produced this decision, or null
+     * for a decision built from rule names
+     */
+    Rule[] getRules() {
+        return rules;
+    }
+
+    /**
+     * Get the compact triggered rules: bit i set means getRules()[i] fired
+     */
+    long getTriggeredMask() {
+        return triggeredMask;
+    }
+
+    private List<String> renderReasons() {
+        if (triggeredMask == 0) {
+            return PASSED;
+        }
+        List<String> result = new ArrayList<>(Long.bitCount(triggeredMask));
+        for (int i = 0; i < rules.length; i++) {
+            if ((triggeredMask & (1L << i)) != 0) {
+                result.add(rules[i].describe(details[i]));
+            }
+        }
+        return result;
+    }
+
+    private List<String> renderTriggeredRules() {
+        if (triggeredMask == 0) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>(Long.bitCount(triggeredMask));
+        for (int i = 0; i < rules.length; i++) {
+            if ((triggeredMask & (1L << i)) != 0) {
+                result.add(rules[i].getName());
+            }
+        }
+        return result;
     }
 
     public static FraudDecision approve(String transactionId) {
-        return new FraudDecision(transactionId, false, 0.0,
-                List.of("Transaction passed all checks"), List.of());
+        return new FraudDecision(transactionId, false, 0.0, PASSED, List.of());
     }
 
     public static FraudDecision review(String transactionId, double riskScore,
@@ -3,8 +3,13 @@ package fraud;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Pure Java Fraud Detection Application using built-in HttpServer.
@@ -22,18 +27,85 @@ public class FraudDetectionApplication {
 
         HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
 
+        // Shared cap on in-flight requests across all contexts
+        AdmissionFilter admission = new AdmissionFilter(
+                Integer.getInteger("fraud.http.maxInFlight", 256),
+                Long.getLong("fraud.http.admissionTimeoutMs", 100));
+
         // Create context for static files (HTML, CSS, JS)
-        server.createContext("/", new FraudHttpHandler());
+        server.createContext("/", new FraudHttpHandler()).getFilters().add(admission);
 
         // Create context for API endpoints
-        server.createContext("/api", new ApiHttpHandler());
+        ApiHttpHandler api = new ApiHttpHandler();
+        server.createContext("/api", api).getFilters().add(admission);
+
+        // Event streams stay open, so they must not hold admission permits
+        server.createContext("/api/stream", api);
+
+        // Executor for handling requests: virtual threads where the runtime
+        // has them, the bounded pool otherwise or with fraud.executor=platform
+        server.setExecutor(createExecutor(System.getProperty("fraud.executor", "auto"), admission));
 
-        // Thread pool for handling requests
-        server.setExecutor(Executors.newFixedThreadPool(10));
+        // Flush the write-ahead log on shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(0);
+            try {
+                api.close();
+            } catch (IOException e) {
+                System.out.println("Error closing write-ahead log: " + e.getMessage());
+            }
+        }));
 
         server.start();
         System.out.println("Fraud Detection System started successfully!");
         System.out.println("Dashboard available at: http://localhost:" + port + "/");
         System.out.println("API endpoints available at: http://localhost:" + port + "/api");
     }
+
+    /**
+     * Create the request executor: "auto" (the default) for a virtual thread
+     * per request where the runtime supports it and the bounded pool
+     * otherwise, "platform" for the pool sized by fraud.executor.threads, or
+     * "virtual" to ask for virtual threads explicitly.
+     */
+    static ExecutorService createExecutor(String mode, AdmissionFilter admission) {
+        boolean auto = "auto".equalsIgnoreCase(mode);
+        if (auto || "virtual".equalsIgnoreCase(mode)) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            if (virtual != null) {
+                System.out.println("Using virtual thread per request executor");
+                return virtual;
+            }
+            if (!auto) {
+                System.out.println("Virtual threads not supported by this runtime, using platform threads");
+            }
+        } else if (!"platform".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Unknown fraud.executor mode: " + mode);
+        }
+
+        int threads = Integer.getInteger("fraud.executor.threads", 10);
+        int queueSize = Integer.getInteger("fraud.executor.queueSize", 1000);
+        System.out.println("Using platform thread pool: " + threads + " threads, queue " + queueSize);
+        return newRequestPool(threads, queueSize, admission);
+    }
+
+    /**
+     * Create a bounded request pool. When its queue is full the request is
+     * handed to the admission filter's shedding threads, which answer 503
+     * with Retry-After, so the dispatcher never runs a request itself and
+     * keeps accepting others.
+     */
+    static ThreadPoolExecutor newRequestPool(int threads, int queueSize, AdmissionFilter admission) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), admission.overflowHandler());
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null; // before Java 21, or preview not enabled
+        }
+    }
 }
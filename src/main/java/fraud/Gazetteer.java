@@ -0,0 +1,137 @@
+package fraud;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Preloaded in-memory gazetteer resolving city names to coordinates.
+ * Lookups never leave the process; unknown cities simply resolve to null.
+ */
+public class Gazetteer {
+
+    private final Map<String, Map<String, double[]>> exactByCountry = new HashMap<>();
+    private final Map<String, double[]> byCityAndCountry = new HashMap<>();
+    private final Map<String, double[]> byCity = new HashMap<>();
+
+    public Gazetteer() {
+        initializeDefaultCities();
+    }
+
+    private void initializeDefaultCities() {
+        // United States
+        register("New York", "US", 40.7128, -74.0060);
+        register("Los Angeles", "US", 34.0522, -118.2437);
+        register("Chicago", "US", 41.8781, -87.6298);
+        register("Houston", "US", 29.7604, -95.3698);
+        register("Miami", "US", 25.7617, -80.1918);
+        register("San Francisco", "US", 37.7749, -122.4194);
+        register("Seattle", "US", 47.6062, -122.3321);
+        register("Boston", "US", 42.3601, -71.0589);
+        register("Washington", "US", 38.9072, -77.0369);
+        register("Atlanta", "US", 33.7490, -84.3880);
+        register("Dallas", "US", 32.7767, -96.7970);
+        register("Denver", "US", 39.7392, -104.9903);
+        register("Phoenix", "US", 33.4484, -112.0740);
+        register("Las Vegas", "US", 36.1699, -115.1398);
+        register("Philadelphia", "US", 39.9526, -75.1652);
+
+        // Americas
+        register("Toronto", "CA", 43.6532, -79.3832);
+        register("Vancouver", "CA", 49.2827, -123.1207);
+        register("Montreal", "CA", 45.5017, -73.5673);
+        register("Mexico City", "MX", 19.4326, -99.1332);
+        register("Sao Paulo", "BR", -23.5505, -46.6333);
+        register("Rio de Janeiro", "BR", -22.9068, -43.1729);
+        register("Buenos Aires", "AR", -34.6037, -58.3816);
+        register("Bogota", "CO", 4.7110, -74.0721);
+        register("Lima", "PE", -12.0464, -77.0428);
+
+        // Europe
+        register("London", "GB", 51.5074, -0.1278);
+        register("Paris", "FR", 48.8566, 2.3522);
+        register("Berlin", "DE", 52.5200, 13.4050);
+        register("Frankfurt", "DE", 50.1109, 8.6821);
+        register("Madrid", "ES", 40.4168, -3.7038);
+        register("Rome", "IT", 41.9028, 12.4964);
+        register("Amsterdam", "NL", 52.3676, 4.9041);
+        register("Zurich", "CH", 47.3769, 8.5417);
+        register("Dublin", "IE", 53.3498, -6.2603);
+        register("Moscow", "RU", 55.7558, 37.6173);
+        register("Istanbul", "TR", 41.0082, 28.9784);
+
+        // Asia Pacific
+        register("Tokyo", "JP", 35.6762, 139.6503);
+        register("Beijing", "CN", 39.9042, 116.4074);
+        register("Shanghai", "CN", 31.2304, 121.4737);
+        register("Hong Kong", "HK", 22.3193, 114.1694);
+        register("Singapore", "SG", 1.3521, 103.8198);
+        register("Seoul", "KR", 37.5665, 126.9780);
+        register("Mumbai", "IN", 19.0760, 72.8777);
+        register("Delhi", "IN", 28.7041, 77.1025);
+        register("Bangalore", "IN", 12.9716, 77.5946);
+        register("Bangkok", "TH", 13.7563, 100.5018);
+        register("Jakarta", "ID", -6.2088, 106.8456);
+        register("Manila", "PH", 14.5995, 120.9842);
+        register("Sydney", "AU", -33.8688, 151.2093);
+        register("Melbourne", "AU", -37.8136, 144.9631);
+        register("Auckland", "NZ", -36.8485, 174.7633);
+
+        // Middle East & Africa
+        register("Dubai", "AE", 25.2048, 55.2708);
+        register("Tel Aviv", "IL", 32.0853, 34.7818);
+        register("Cairo", "EG", 30.0444, 31.2357);
+        register("Lagos", "NG", 6.5244, 3.3792);
+        register("Nairobi", "KE", -1.2921, 36.8219);
+        register("Johannesburg", "ZA", -26.2041, 28.0473);
+    }
+
+    /**
+     * Register a city. Must be called before the gazetteer is shared across threads.
+     */
+    public void register(String city, String country, double latitude, double longitude) {
+        double[] coordinates = { latitude, longitude };
+        exactByCountry.computeIfAbsent(country, k -> new HashMap<>()).put(city, coordinates);
+        byCityAndCountry.put(key(city, country), coordinates);
+        byCity.putIfAbsent(normalize(city), coordinates);
+    }
+
+    /**
+     * Resolve a location to {latitude, longitude}, or null if unknown.
+     * The returned array is shared and must not be modified.
+     */
+    public double[] resolve(Location location) {
+        if (location == null || location.getCity() == null) {
+            return null;
+        }
+        // Fast path: exact spelling, no key allocation
+        Map<String, double[]> cities = location.getCountry() != null ? exactByCountry.get(location.getCountry()) : null;
+        double[] exact = cities != null ? cities.get(location.getCity()) : null;
+        if (exact != null) {
+            return exact;
+        }
+
+        if (location.getCountry() != null) {
+            double[] coordinates = byCityAndCountry.get(key(location.getCity(), location.getCountry()));
+            if (coordinates != null) {
+                return coordinates;
+            }
+        }
+        return byCity.get(normalize(location.getCity()));
+    }
+
+    /**
+     * Get number of known cities.
+     */
+    public int size() {
+        return byCityAndCountry.size();
+    }
+
+    private static String key(String city, String country) {
+        return normalize(city) + "|" + normalize(country);
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
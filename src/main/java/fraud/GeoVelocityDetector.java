@@ -0,0 +1,164 @@
+package fraud;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming "impossible travel" detector.
+ * Compares each transaction's location with the user's last known position
+ * and reports the implied travel speed. Last positions live in a striped LRU
+ * cache holding primitive latitude/longitude/epoch fields per user.
+ */
+public class GeoVelocityDetector {
+    private static final int DEFAULT_MAX_USERS = 100_000;
+    private static final double DEFAULT_MAX_SPEED_KMH = 1000.0; // faster than a commercial flight
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final long MIN_ELAPSED_MILLIS = 1000L;
+    private static final int SEGMENTS = 16;
+
+    private final Gazetteer gazetteer;
+    private final double maxSpeedKmh;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public GeoVelocityDetector() {
+        this(new Gazetteer(), DEFAULT_MAX_USERS, DEFAULT_MAX_SPEED_KMH);
+    }
+
+    public GeoVelocityDetector(Gazetteer gazetteer, int maxUsers, double maxSpeedKmh) {
+        this.gazetteer = gazetteer;
+        this.maxSpeedKmh = maxSpeedKmh;
+        int perSegment = Math.max(1, maxUsers / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Record the user's position and return the implied travel speed in km/h
+     * from the previous position. Returns 0 when the location is unknown,
+     * there is no previous position, or the move is shorter than minDistanceKm.
+     */
+    public double observe(String userId, Location location, long epochMillis, int minDistanceKm) {
+        if (userId == null) {
+            return 0;
+        }
+        double[] coordinates = gazetteer.resolve(location);
+        if (coordinates == null) {
+            return 0;
+        }
+        return segmentFor(userId).observe(userId, coordinates[0], coordinates[1], epochMillis, minDistanceKm);
+    }
+
+    /**
+     * Check whether a speed returned by {@link #observe} is physically impossible.
+     */
+    public boolean isImpossible(double speedKmh) {
+        return speedKmh > maxSpeedKmh;
+    }
+
+    /**
+     * Get the maximum plausible travel speed in km/h.
+     */
+    public double getMaxSpeedKmh() {
+        return maxSpeedKmh;
+    }
+
+    /**
+     * Get number of users with a cached position.
+     */
+    public int getTrackedUserCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.size();
+        }
+        return count;
+    }
+
+    /**
+     * Forget all cached positions.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Great-circle distance between two points in kilometres.
+     */
+    static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private Segment segmentFor(String userId) {
+        int h = userId.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Last known position of a user, updated in place.
+     */
+    private static final class Position {
+        double latitude;
+        double longitude;
+        long epochMillis;
+    }
+
+    /**
+     * One stripe of the cache: an access-ordered map evicting the least
+     * recently seen user once full.
+     */
+    private static final class Segment {
+        private final LinkedHashMap<String, Position> positions;
+
+        Segment(int capacity) {
+            this.positions = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Position> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized double observe(String userId, double latitude, double longitude, long epochMillis,
+                int minDistanceKm) {
+            Position last = positions.get(userId);
+            if (last == null) {
+                last = new Position();
+                last.latitude = latitude;
+                last.longitude = longitude;
+                last.epochMillis = epochMillis;
+                positions.put(userId, last);
+                return 0;
+            }
+
+            double distanceKm = haversineKm(last.latitude, last.longitude, latitude, longitude);
+            long elapsedMillis = Math.max(Math.abs(epochMillis - last.epochMillis), MIN_ELAPSED_MILLIS);
+
+            // Keep the most recent position; out-of-order events are still compared
+            if (epochMillis >= last.epochMillis) {
+                last.latitude = latitude;
+                last.longitude = longitude;
+                last.epochMillis = epochMillis;
+            }
+
+            if (distanceKm < minDistanceKm) {
+                return 0;
+            }
+            return distanceKm / (elapsedMillis / 3_600_000.0);
+        }
+
+        synchronized int size() {
+            return positions.size();
+        }
+
+        synchronized void clear() {
+            positions.clear();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package fraud;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * On-heap transaction store, the default backend of {@link TransactionStorage}.
+ * <p>
+ * Every insert takes the next sequence number and lands in ring slot
+ * {@code seq % MAX_TRANSACTIONS}, pushing out whatever was inserted
+ * MAX_TRANSACTIONS inserts earlier. Insert, delete and eviction are O(1) and
+ * lock-free apart from the entry's own monitor, which updates hold while
+ * they re-count it; deletes just clear their slot. Iteration walks the ring by
+ * sequence number up to the newest entry at the time it started, so it never
+ * copies the store and never sees entries added after it began.
+ * <p>
+ * Each block of {@code ZONE_SIZE} consecutive sequence numbers keeps the
+ * earliest and latest timestamp inserted into it, so time-filtered pages
+ * skip whole blocks outside the range instead of testing every entry.
+ */
+final class HeapTransactionStore implements TransactionStore {
+    private static final int MAX_TRANSACTIONS = 10000;
+    private static final int MAX_PER_USER = Integer.getInteger("fraud.storage.maxPerUser", 500);
+    private static final int ZONE_SIZE = 64;
+
+    private final Map<String, Entry> transactions = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(MAX_TRANSACTIONS);
+    private final AtomicLong nextSeq = new AtomicLong();
+    // Enough zones for every block a full ring can touch
+    private final Zone[] zones = new Zone[MAX_TRANSACTIONS / ZONE_SIZE + 2];
+    private final UserTransactionIndex userIndex = new UserTransactionIndex(MAX_PER_USER);
+    private final TransactionStats stats;
+
+    HeapTransactionStore(TransactionStats stats) {
+        this.stats = stats;
+        for (int i = 0; i < zones.length; i++) {
+            zones[i] = new Zone();
+        }
+    }
+
+    @Override
+    public void put(Transaction transaction) {
+        Entry entry = new Entry(nextSeq.getAndIncrement(), transaction);
+        // Widen the block's time span before the entry becomes visible
+        zone(entry.seq / ZONE_SIZE).include(entry.seq / ZONE_SIZE, transaction.getTimestamp());
+
+        // Claim the ring slot, evicting the entry from one lap earlier
+        int slot = slot(entry.seq);
+        while (true) {
+            Entry current = ring.get(slot);
+            if (current != null && current.seq > entry.seq) {
+                return; // a later lap already owns the slot
+            }
+            if (ring.compareAndSet(slot, current, entry)) {
+                if (current != null) {
+                    evict(current);
+                }
+                break;
+            }
+        }
+
+        userIndex.add(entry);
+        stats.add(transaction);
+        Entry previous = transactions.put(transaction.getTransactionId(), entry);
+        if (previous != null) {
+            ring.compareAndSet(slot(previous.seq), previous, null);
+            userIndex.remove(previous);
+            uncount(previous);
+        }
+        if (ring.get(slot) != entry) {
+            // Lapped before it was published
+            evict(entry);
+        }
+    }
+
+    private void evict(Entry entry) {
+        if (transactions.remove(entry.transaction.getTransactionId(), entry)) {
+            userIndex.remove(entry);
+            uncount(entry);
+        }
+    }
+
+    /**
+     * Uncount an entry that is no longer stored, after any update of it in
+     * progress
+     */
+    private void uncount(Entry entry) {
+        synchronized (entry) {
+            stats.remove(entry.transaction);
+        }
+    }
+
+    private static int slot(long seq) {
+        return (int) (seq % MAX_TRANSACTIONS);
+    }
+
+    private Zone zone(long block) {
+        return zones[(int) (block % zones.length)];
+    }
+
+    @Override
+    public Transaction get(String transactionId) {
+        Entry entry = transactions.get(transactionId);
+        return entry != null ? entry.transaction : null;
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        long end = nextSeq.get();
+        long start = Math.max(0, end - MAX_TRANSACTIONS);
+        return new Iterator<>() {
+            private long seq = start;
+            private Transaction next = advance();
+
+            private Transaction advance() {
+                while (seq < end) {
+                    Entry entry = ring.get(slot(seq));
+                    long expected = seq++;
+                    // Skip deleted slots and slots already reused by a later lap
+                    if (entry != null && entry.seq == expected) {
+                        return entry.transaction;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Transaction result = next;
+                next = advance();
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public List<Transaction> getByUser(String userId) {
+        return userIndex.all(userId);
+    }
+
+    @Override
+    public List<Transaction> getRecentByUser(String userId, int n) {
+        return userIndex.latest(userId, n);
+    }
+
+    @Override
+    public List<Transaction> getByUser(String userId, Instant from, Instant to) {
+        return userIndex.range(userId, from, to);
+    }
+
+    @Override
+    public Page<Transaction> find(String userId, Instant from, Instant to, String cursor, int limit) {
+        List<Entry> entries = userId != null
+                ? findByUser(userId, from, to, cursor, limit + 1)
+                : findByInsertion(from, to, cursor, limit + 1);
+
+        String nextCursor = null;
+        if (entries.size() > limit) {
+            entries = entries.subList(0, limit);
+            Entry last = entries.get(limit - 1);
+            nextCursor = userId != null
+                    ? TransactionStore.userCursor(last.transaction.getTimestamp(), last.seq)
+                    : Page.encodeCursor('s', Long.toString(last.seq));
+        }
+        List<Transaction> items = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            items.add(entry.transaction);
+        }
+        return new Page<>(items, nextCursor);
+    }
+
+    private List<Entry> findByUser(String userId, Instant from, Instant to, String cursor, int limit) {
+        Instant beforeTimestamp = null;
+        long beforeSeq = 0;
+        if (cursor != null) {
+            long[] position = TransactionStore.parseUserCursor(cursor);
+            beforeTimestamp = Instant.ofEpochSecond(position[0], position[1]);
+            beforeSeq = position[2];
+        }
+        return userIndex.page(userId, from, to, beforeTimestamp, beforeSeq, limit);
+    }
+
+    private List<Entry> findByInsertion(Instant from, Instant to, String cursor, int limit) {
+        long end = nextSeq.get();
+        if (cursor != null) {
+            try {
+                end = Math.min(end, Long.parseLong(Page.decodeCursor('s', cursor)));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+        }
+        long start = Math.max(0, nextSeq.get() - MAX_TRANSACTIONS);
+        boolean filtered = from != null || to != null;
+        List<Entry> result = new ArrayList<>(Math.min(limit, 256));
+        for (long seq = end - 1; seq >= start && result.size() < limit; ) {
+            long block = seq / ZONE_SIZE;
+            long blockStart = Math.max(start, block * ZONE_SIZE);
+            if (filtered && !zone(block).mayOverlap(block, from, to)) {
+                seq = blockStart - 1;
+                continue;
+            }
+            for (; seq >= blockStart && result.size() < limit; seq--) {
+                Entry entry = ring.get(slot(seq));
+                if (entry == null || entry.seq != seq) {
+                    continue;
+                }
+                Instant timestamp = entry.transaction.getTimestamp();
+                if ((from == null || !timestamp.isBefore(from)) && (to == null || timestamp.isBefore(to))) {
+                    result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Transaction update(String transactionId, Transaction changes, Consumer<Transaction> applied) {
+        Entry entry = transactions.get(transactionId);
+        if (entry == null) {
+            return null;
+        }
+        // Updates of one entry take turns, so each uncounts the state the
+        // previous one counted
+        synchronized (entry) {
+            if (transactions.get(transactionId) != entry) {
+                return null; // deleted, replaced or evicted meanwhile
+            }
+            Transaction existing = entry.transaction;
+            stats.remove(existing);
+            TransactionStore.applyChanges(existing, changes);
+            stats.add(existing);
+            applied.accept(existing);
+            return existing;
+        }
+    }
+
+    @Override
+    public boolean remove(String transactionId) {
+        Entry removed = transactions.remove(transactionId);
+        if (removed != null) {
+            ring.compareAndSet(slot(removed.seq), removed, null);
+            userIndex.remove(removed);
+            uncount(removed);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return transactions.size();
+    }
+
+    @Override
+    public void clear() {
+        transactions.clear();
+        for (int i = 0; i < MAX_TRANSACTIONS; i++) {
+            ring.set(i, null);
+        }
+        userIndex.clear();
+    }
+
+    /**
+     * Earliest and latest timestamp inserted into one block of sequence
+     * numbers. Deletes and evictions never narrow it, so it may only
+     * over-report what the block holds.
+     */
+    private static final class Zone {
+        private long block = -1;
+        private Instant earliest;
+        private Instant latest;
+
+        synchronized void include(long block, Instant timestamp) {
+            if (block < this.block) {
+                return; // lapped already, the entry will not be stored
+            }
+            if (block > this.block) {
+                this.block = block;
+                earliest = timestamp;
+                latest = timestamp;
+            } else if (timestamp.isBefore(earliest)) {
+                earliest = timestamp;
+            } else if (timestamp.isAfter(latest)) {
+                latest = timestamp;
+            }
+        }
+
+        /**
+         * Check whether the block may hold timestamps in from <= t < to;
+         * a block this zone no longer tracks may hold anything
+         */
+        synchronized boolean mayOverlap(long block, Instant from, Instant to) {
+            return this.block != block
+                    || ((from == null || !latest.isBefore(from)) && (to == null || earliest.isBefore(to)));
+        }
+    }
+
+    /**
+     * Stored transaction tagged with its insertion sequence number.
+     */
+    static final class Entry {
+        final long seq;
+        final Transaction transaction;
+
+        Entry(long seq, Transaction transaction) {
+            this.seq = seq;
+            this.transaction = transaction;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package fraud;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free generator of unique, time-ordered 64-bit IDs, Snowflake style:
+ * 41 bits of milliseconds since 2024-01-01, a 10-bit node ID
+ * (fraud.node.id) and a 12-bit sequence within the millisecond.
+ * <p>
+ * The last issued time and sequence live in one AtomicLong, so issuing an
+ * ID is a clock read and a CAS; no SecureRandom, no lock. If the sequence
+ * runs out within a millisecond, or the clock steps back, IDs keep counting
+ * on from the last one, so they never repeat and never go backwards on a
+ * node. IDs from different nodes are unique and roughly time-ordered.
+ * <p>
+ * As text they are 13 characters of Crockford base32, fixed width, so
+ * string order is numeric order.
+ */
+public final class IdGenerator {
+    static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final int ENCODED_LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final IdGenerator SHARED = new IdGenerator(Integer.getInteger("fraud.node.id", 0));
+
+    private final long node;
+    private final AtomicLong last = new AtomicLong(); // millis << SEQUENCE_BITS | sequence
+
+    public IdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE);
+        }
+        this.node = nodeId;
+    }
+
+    /**
+     * Get the generator for this process, on node fraud.node.id
+     */
+    public static IdGenerator shared() {
+        return SHARED;
+    }
+
+    public long nextId() {
+        while (true) {
+            long previous = last.get();
+            long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            // A full sequence carries into the next millisecond
+            long next = Math.max(now, previous + 1);
+            if (last.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return millis << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | sequence;
+            }
+        }
+    }
+
+    /**
+     * Get a new ID as text after a prefix such as "TXN-"
+     */
+    public String next(String prefix) {
+        return prefix + encode(nextId());
+    }
+
+    /**
+     * Get the time an ID was issued, to the millisecond
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    static long decode(String encoded) {
+        if (encoded.length() != ENCODED_LENGTH) {
+            throw new IllegalArgumentException("Invalid ID: " + encoded);
+        }
+        long id = 0;
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            int digit = indexOf(encoded.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid ID: " + encoded);
+            }
+            id = id << 5 | digit;
+        }
+        return id;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
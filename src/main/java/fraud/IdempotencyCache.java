@@ -0,0 +1,207 @@
+package fraud;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, time-expiring record of recently ingested keys and their
+ * outcomes, so a retried request gets the original result instead of being
+ * processed again.
+ * <p>
+ * The first caller to {@link #claim} a key owns it and must
+ * {@link #finish} or {@link #abandon} it. Retries that arrive while the
+ * owner is still working wait for its outcome instead of racing it. Once
+ * finished, an outcome is kept for the time-to-live, and the oldest
+ * finished entries are dropped beyond maxEntries. Entries still in flight
+ * are never dropped, so the cache may briefly hold more, but eviction looks
+ * past them so a stuck key cannot hold back the rest.
+ */
+public class IdempotencyCache<V> {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Slot<V>> slots = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Slot<V>> order = new ConcurrentLinkedQueue<>(); // oldest claim first
+    private final LongAdder replays = new LongAdder();
+
+    public IdempotencyCache(int maxEntries, long ttl, TimeUnit unit) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Claim a key. Returns null if the caller now owns it; otherwise the
+     * outcome the owner finished with, waiting up to timeout while it is
+     * in flight. If the owner abandons the key, a waiter tries to claim it
+     * again.
+     */
+    public V claim(String key, long timeout, TimeUnit unit) {
+        return claimAll(List.of(key), timeout, unit).get(key);
+    }
+
+    /**
+     * Claim several keys under one deadline. Free keys are claimed first,
+     * then the keys other owners hold are waited on together. Returns the
+     * earlier outcome of every key that had one; the caller owns the rest.
+     * If the deadline passes, the keys claimed here are abandoned again
+     * before {@link InFlightException} is thrown.
+     */
+    public Map<String, V> claimAll(Collection<String> keys, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Map<String, V> outcomes = new HashMap<>();
+        List<String> owned = new ArrayList<>();
+        Map<String, Slot<V>> held = new LinkedHashMap<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            Slot<V> existing = tryClaim(key);
+            if (existing == null) {
+                owned.add(key);
+            } else {
+                held.put(key, existing);
+            }
+        }
+
+        try {
+            while (!held.isEmpty()) {
+                Iterator<Map.Entry<String, Slot<V>>> it = held.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Slot<V>> entry = it.next();
+                    V outcome = entry.getValue().outcome.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (outcome != null) {
+                        replays.increment();
+                        outcomes.put(entry.getKey(), outcome);
+                        it.remove();
+                        continue;
+                    }
+                    // The owner abandoned it: try to take it over
+                    Slot<V> existing = tryClaim(entry.getKey());
+                    if (existing == null) {
+                        owned.add(entry.getKey());
+                        it.remove();
+                    } else {
+                        entry.setValue(existing);
+                    }
+                }
+            }
+        } catch (TimeoutException e) {
+            owned.forEach(this::abandon);
+            throw new InFlightException("Still processing " + held.keySet().iterator().next());
+        } catch (InterruptedException e) {
+            owned.forEach(this::abandon);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + held.keySet().iterator().next());
+        } catch (ExecutionException e) {
+            owned.forEach(this::abandon);
+            throw new IllegalStateException(e.getCause());
+        }
+        return outcomes;
+    }
+
+    /**
+     * Claim a key if nobody holds it. Returns null if the caller now owns
+     * it, otherwise the slot of the current owner.
+     */
+    private Slot<V> tryClaim(String key) {
+        while (true) {
+            long now = System.nanoTime();
+            evict(now);
+            Slot<V> slot = new Slot<>(key);
+            Slot<V> existing = slots.putIfAbsent(key, slot);
+            if (existing == null) {
+                order.add(slot);
+                return null;
+            }
+            if (!existing.isExpired(now, ttlNanos)) {
+                return existing;
+            }
+            slots.remove(key, existing);
+        }
+    }
+
+    /**
+     * Record the outcome of a claimed key and release its waiters
+     */
+    public void finish(String key, V outcome) {
+        Slot<V> slot = slots.get(key);
+        if (slot != null) {
+            slot.finishedNanos = System.nanoTime();
+            slot.outcome.complete(outcome);
+        }
+    }
+
+    /**
+     * Give up a claimed key without an outcome, so the next attempt
+     * processes it
+     */
+    public void abandon(String key) {
+        Slot<V> slot = slots.remove(key);
+        if (slot != null) {
+            slot.outcome.complete(null);
+        }
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Get how many claims were answered with an earlier outcome
+     */
+    public long getReplayCount() {
+        return replays.sum();
+    }
+
+    private void evict(long now) {
+        Iterator<Slot<V>> it = order.iterator();
+        while (it.hasNext()) {
+            Slot<V> slot = it.next();
+            if (slots.get(slot.key) == slot) {
+                if (!slot.outcome.isDone()) {
+                    continue; // in flight: keep it, but look past it
+                }
+                if (!slot.isExpired(now, ttlNanos) && slots.size() <= maxEntries) {
+                    return;
+                }
+                slots.remove(slot.key, slot);
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * Thrown when a key is still being processed by its owner after the
+     * claim timeout, so the caller should retry later.
+     */
+    public static class InFlightException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public InFlightException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Slot<V> {
+        final String key;
+        final CompletableFuture<V> outcome = new CompletableFuture<>();
+        volatile long finishedNanos;
+
+        Slot(String key) {
+            this.key = key;
+        }
+
+        boolean isExpired(long now, long ttlNanos) {
+            return outcome.isDone() && now - finishedNanos > ttlNanos;
+        }
+    }
+}
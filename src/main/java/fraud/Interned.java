@@ -0,0 +1,21 @@
+package fraud;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a String field with few distinct values. The JSON codec decodes it
+ * through the named {@link StringDictionary}, so equal values share one
+ * instance instead of each request allocating its own.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Interned {
+
+    /**
+     * Dictionary name; the field name when empty
+     */
+    String value() default "";
+}
@@ -0,0 +1,423 @@
+package fraud;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON codec with per-class accessors resolved once.
+ * <p>
+ * The first time a class is seen its properties are discovered by reflection
+ * and turned into {@link MethodHandle}s adapted to primitive signatures, with
+ * the {@code "name":} prefix pre-encoded. After that, writing an object is a
+ * straight walk over the cached properties into a {@link JsonWriter}, and
+ * reading goes through {@link JsonParser} and the cached setters.
+ */
+public final class JsonCodec {
+
+    private static final ClassValue<ClassInfo> CLASS_INFO = new ClassValue<>() {
+        @Override
+        protected ClassInfo computeValue(Class<?> type) {
+            return new ClassInfo(type);
+        }
+    };
+
+    private JsonCodec() {
+    }
+
+    /**
+     * Serialize a value to a JSON string.
+     */
+    public static String toJson(Object value) {
+        JsonWriter out = JsonWriter.acquire();
+        try {
+            write(out, value);
+            return out.toString();
+        } finally {
+            JsonWriter.release(out);
+        }
+    }
+
+    /**
+     * Deserialize a JSON string into the given type.
+     */
+    public static <T> T fromJson(String json, Class<T> type) {
+        return new JsonParser(json).parse(type);
+    }
+
+    /**
+     * Deserialize UTF-8 JSON from a stream, reading at most maxBytes.
+     */
+    public static <T> T fromJson(InputStream in, Class<T> type, long maxBytes) {
+        return new JsonParser(in, maxBytes).parse(type);
+    }
+
+    /**
+     * Append a value as JSON.
+     */
+    public static void write(JsonWriter out, Object value) {
+        if (value == null) {
+            out.writeNull();
+        } else if (value instanceof String) {
+            out.writeString((String) value);
+        } else if (value instanceof Number) {
+            out.writeNumber((Number) value);
+        } else if (value instanceof Boolean) {
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Instant || value instanceof Enum || value instanceof Character) {
+            out.writeString(value.toString());
+        } else if (value instanceof Map) {
+            writeMap(out, (Map<?, ?>) value);
+        } else if (value instanceof List) {
+            writeList(out, (List<?>) value);
+        } else if (value instanceof Collection) {
+            writeCollection(out, (Collection<?>) value);
+        } else if (value.getClass().isArray()) {
+            writeArray(out, value);
+        } else {
+            classInfo(value.getClass()).write(out, value);
+        }
+    }
+
+    static ClassInfo classInfo(Class<?> type) {
+        return CLASS_INFO.get(type);
+    }
+
+    private static void writeMap(JsonWriter out, Map<?, ?> map) {
+        out.writeByte('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first)
+                out.writeByte(',');
+            first = false;
+            out.writeString(String.valueOf(entry.getKey()));
+            out.writeByte(':');
+            write(out, entry.getValue());
+        }
+        out.writeByte('}');
+    }
+
+    private static void writeList(JsonWriter out, List<?> list) {
+        out.writeByte('[');
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0)
+                out.writeByte(',');
+            write(out, list.get(i));
+        }
+        out.writeByte(']');
+    }
+
+    private static void writeCollection(JsonWriter out, Collection<?> collection) {
+        out.writeByte('[');
+        boolean first = true;
+        for (Object item : collection) {
+            if (!first)
+                out.writeByte(',');
+            first = false;
+            write(out, item);
+        }
+        out.writeByte(']');
+    }
+
+    private static void writeArray(JsonWriter out, Object array) {
+        out.writeByte('[');
+        if (array instanceof int[]) {
+            int[] values = (int[]) array;
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0)
+                    out.writeByte(',');
+                out.writeLong(values[i]);
+            }
+        } else if (array instanceof long[]) {
+            long[] values = (long[]) array;
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0)
+                    out.writeByte(',');
+                out.writeLong(values[i]);
+            }
+        } else if (array instanceof double[]) {
+            double[] values = (double[]) array;
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0)
+                    out.writeByte(',');
+                out.writeDouble(values[i]);
+            }
+        } else {
+            int length = Array.getLength(array);
+            for (int i = 0; i < length; i++) {
+                if (i > 0)
+                    out.writeByte(',');
+                write(out, Array.get(array, i));
+            }
+        }
+        out.writeByte(']');
+    }
+
+    /**
+     * Value category of a property, used to pick a primitive accessor signature.
+     */
+    enum Kind {
+        INT, LONG, DOUBLE, BOOLEAN, OBJECT;
+
+        static Kind of(Class<?> type) {
+            if (type == int.class)
+                return INT;
+            if (type == long.class)
+                return LONG;
+            if (type == double.class)
+                return DOUBLE;
+            if (type == boolean.class)
+                return BOOLEAN;
+            return OBJECT;
+        }
+
+        MethodType getterType() {
+            switch (this) {
+                case INT:
+                    return MethodType.methodType(int.class, Object.class);
+                case LONG:
+                    return MethodType.methodType(long.class, Object.class);
+                case DOUBLE:
+                    return MethodType.methodType(double.class, Object.class);
+                case BOOLEAN:
+                    return MethodType.methodType(boolean.class, Object.class);
+                default:
+                    return MethodType.methodType(Object.class, Object.class);
+            }
+        }
+
+        MethodType setterType() {
+            switch (this) {
+                case INT:
+                    return MethodType.methodType(void.class, Object.class, int.class);
+                case LONG:
+                    return MethodType.methodType(void.class, Object.class, long.class);
+                case DOUBLE:
+                    return MethodType.methodType(void.class, Object.class, double.class);
+                case BOOLEAN:
+                    return MethodType.methodType(void.class, Object.class, boolean.class);
+                default:
+                    return MethodType.methodType(void.class, Object.class, Object.class);
+            }
+        }
+    }
+
+    /**
+     * Cached getter of one property.
+     */
+    static final class Getter {
+        final byte[] prefix;
+        final Kind kind;
+        final MethodHandle handle;
+
+        Getter(String name, Kind kind, MethodHandle handle) {
+            this.prefix = ("\"" + name + "\":").getBytes(StandardCharsets.UTF_8);
+            this.kind = kind;
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * Cached setter of one property.
+     */
+    static final class Setter {
+        final String name;
+        final Kind kind;
+        final Class<?> type;
+        final Type genericType;
+        final MethodHandle handle;
+        final StringDictionary dictionary; // for @Interned fields, else null
+
+        Setter(String name, Kind kind, Class<?> type, Type genericType, MethodHandle handle,
+                StringDictionary dictionary) {
+            this.name = name;
+            this.kind = kind;
+            this.type = type;
+            this.genericType = genericType;
+            this.handle = handle;
+            this.dictionary = dictionary;
+        }
+    }
+
+    /**
+     * Accessors of one class, resolved once.
+     */
+    static final class ClassInfo {
+        private final Class<?> type;
+        private final Getter[] getters;
+        private final Setter[] setters;
+        private final MethodHandle constructor;
+
+        ClassInfo(Class<?> type) {
+            this.type = type;
+            this.getters = resolveGetters(type);
+            this.setters = resolveSetters(type);
+            this.constructor = resolveConstructor(type);
+        }
+
+        void write(JsonWriter out, Object obj) {
+            out.writeByte('{');
+            try {
+                for (int i = 0; i < getters.length; i++) {
+                    Getter getter = getters[i];
+                    if (i > 0)
+                        out.writeByte(',');
+                    out.writeRaw(getter.prefix);
+                    switch (getter.kind) {
+                        case INT:
+                            out.writeLong((int) getter.handle.invokeExact(obj));
+                            break;
+                        case LONG:
+                            out.writeLong((long) getter.handle.invokeExact(obj));
+                            break;
+                        case DOUBLE:
+                            out.writeDouble((double) getter.handle.invokeExact(obj));
+                            break;
+                        case BOOLEAN:
+                            out.writeBoolean((boolean) getter.handle.invokeExact(obj));
+                            break;
+                        default:
+                            JsonCodec.write(out, (Object) getter.handle.invokeExact(obj));
+                            break;
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to serialize " + type.getName() + ": " + t.getMessage(), t);
+            }
+            out.writeByte('}');
+        }
+
+        Object newInstance() {
+            if (constructor == null) {
+                throw new IllegalArgumentException("No public no-arg constructor for " + type.getName());
+            }
+            try {
+                return constructor.invoke();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to create " + type.getName() + ": " + t.getMessage(), t);
+            }
+        }
+
+        /**
+         * Find a setter by property name without allocating a key String.
+         */
+        Setter findSetter(CharSequence name) {
+            for (Setter setter : setters) {
+                if (setter.name.contentEquals(name)) {
+                    return setter;
+                }
+            }
+            return null;
+        }
+
+        private static Getter[] resolveGetters(Class<?> type) {
+            List<Getter> result = new ArrayList<>();
+            for (Field field : declaredFields(type)) {
+                String name = field.getName();
+                Method method = findMethod(type, "get" + capitalize(name));
+                if (method == null && field.getType() == boolean.class) {
+                    method = findMethod(type, "is" + capitalize(name));
+                }
+                if (method == null) {
+                    continue;
+                }
+                Kind kind = Kind.of(method.getReturnType());
+                result.add(new Getter(name, kind, unreflect(method).asType(kind.getterType())));
+            }
+            return result.toArray(new Getter[0]);
+        }
+
+        private static Setter[] resolveSetters(Class<?> type) {
+            Map<String, StringDictionary> dictionaries = new HashMap<>();
+            for (Field field : declaredFields(type)) {
+                Interned interned = field.getAnnotation(Interned.class);
+                if (interned != null && field.getType() == String.class) {
+                    String name = interned.value().isEmpty() ? field.getName() : interned.value();
+                    dictionaries.put(field.getName(), StringDictionary.named(name));
+                }
+            }
+            List<Setter> result = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                String name = method.getName();
+                if (name.length() > 3 && name.startsWith("set") && method.getParameterCount() == 1
+                        && !Modifier.isStatic(method.getModifiers())) {
+                    String property = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+                    Class<?> paramType = method.getParameterTypes()[0];
+                    Kind kind = Kind.of(paramType);
+                    result.add(new Setter(property, kind, paramType, method.getGenericParameterTypes()[0],
+                            unreflect(method).asType(kind.setterType()),
+                            paramType == String.class ? dictionaries.get(property) : null));
+                }
+            }
+            return result.toArray(new Setter[0]);
+        }
+
+        private static MethodHandle resolveConstructor(Class<?> type) {
+            if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+                return null;
+            }
+            try {
+                return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
+        }
+
+        private static List<Field> declaredFields(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            if (type.getSuperclass() != null && type.getSuperclass() != Object.class) {
+                fields.addAll(declaredFields(type.getSuperclass()));
+            }
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    fields.add(field);
+                }
+            }
+            return fields;
+        }
+
+        private static Method findMethod(Class<?> type, String name) {
+            try {
+                Method method = type.getMethod(name);
+                return method.getReturnType() != void.class ? method : null;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        private static MethodHandle unreflect(Method method) {
+            try {
+                return MethodHandles.publicLookup().unreflect(method);
+            } catch (IllegalAccessException e) {
+                try {
+                    method.setAccessible(true);
+                    return MethodHandles.lookup().unreflect(method);
+                } catch (RuntimeException | IllegalAccessException inaccessible) {
+                    throw new IllegalStateException("Cannot access " + method, inaccessible);
+                }
+            }
+        }
+
+        private static String capitalize(String name) {
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+}
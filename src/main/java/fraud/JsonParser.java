@@ -0,0 +1,749 @@
+package fraud;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single-pass, incremental JSON pull parser and binder.
+ * <p>
+ * Input is read in small chunks straight from a stream, so a request body is
+ * never buffered whole. Objects are bound onto the target's cached setters as
+ * they are read, including nested POJOs and typed collections such as
+ * {@code List<String>}. Body size, nesting depth and string length are capped
+ * so an oversized or hostile body fails fast with
+ * {@link LimitExceededException} instead of exhausting memory.
+ */
+public final class JsonParser {
+    public static final int DEFAULT_MAX_DEPTH = 64;
+    public static final int DEFAULT_MAX_STRING_LENGTH = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * Kind of the next value in the input.
+     */
+    public enum Token {
+        BEGIN_OBJECT, BEGIN_ARRAY, END_ARRAY, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private final Reader reader;
+    private final char[] buffer;
+    private final int maxDepth;
+    private final int maxStringLength;
+    private final StringBuilder text = new StringBuilder(64);
+    private final boolean[] arrayStarted;
+    private int pos;
+    private int limit;
+    private long offset;
+    private int depth;
+
+    // Details of the last number token
+    private boolean numberIntegral;
+    private boolean numberSimple;
+
+    public JsonParser(String input) {
+        this.reader = null;
+        this.buffer = input.toCharArray();
+        this.limit = buffer.length;
+        this.maxDepth = DEFAULT_MAX_DEPTH;
+        this.maxStringLength = Integer.MAX_VALUE;
+        this.arrayStarted = new boolean[maxDepth + 1];
+    }
+
+    /**
+     * Parse UTF-8 JSON from a stream, reading at most maxBytes.
+     */
+    public JsonParser(InputStream in, long maxBytes) {
+        this(in, maxBytes, DEFAULT_MAX_DEPTH, DEFAULT_MAX_STRING_LENGTH);
+    }
+
+    public JsonParser(InputStream in, long maxBytes, int maxDepth, int maxStringLength) {
+        this.reader = new InputStreamReader(new LimitedInputStream(in, maxBytes), StandardCharsets.UTF_8);
+        this.buffer = new char[BUFFER_SIZE];
+        this.maxDepth = maxDepth;
+        this.maxStringLength = maxStringLength;
+        this.arrayStarted = new boolean[maxDepth + 1];
+    }
+
+    /**
+     * Parse the whole input as a single value of the given type.
+     */
+    public <T> T parse(Class<T> type) {
+        T value = read(type);
+        if (peekToken() != Token.END_DOCUMENT) {
+            throw error("Unexpected trailing content");
+        }
+        return value;
+    }
+
+    /**
+     * Read the next value as the given class.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(Class<T> type) {
+        return (T) readValue(type);
+    }
+
+    /**
+     * Read the next value as the given (possibly parameterized) type.
+     */
+    public Object read(Type type) {
+        return readValue(type);
+    }
+
+    /**
+     * Look at the next value without consuming it.
+     */
+    public Token peekToken() {
+        skipWhitespace();
+        int c = peekOrEnd();
+        switch (c) {
+            case -1:
+                return Token.END_DOCUMENT;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            default:
+                return Token.NUMBER;
+        }
+    }
+
+    /**
+     * Start streaming the elements of an array; use with {@link #hasNext()}.
+     */
+    public void beginArray() {
+        skipWhitespace();
+        expect('[');
+        enter();
+        arrayStarted[depth] = false;
+    }
+
+    /**
+     * Check for another array element, consuming the separating comma.
+     * Must be called exactly once before reading each element.
+     */
+    public boolean hasNext() {
+        skipWhitespace();
+        if (peek() == ']') {
+            return false;
+        }
+        if (arrayStarted[depth]) {
+            expect(',');
+        }
+        arrayStarted[depth] = true;
+        return true;
+    }
+
+    public void endArray() {
+        skipWhitespace();
+        expect(']');
+        depth--;
+    }
+
+    /**
+     * Number of characters consumed so far.
+     */
+    public long position() {
+        return offset + pos;
+    }
+
+    private Object readValue(Type type) {
+        if (type instanceof Class) {
+            return readValue((Class<?>) type);
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+            Type[] args = parameterized.getActualTypeArguments();
+            if (Collection.class.isAssignableFrom(raw) && peekToken() == Token.BEGIN_ARRAY) {
+                return readCollection(raw, args[0]);
+            }
+            if (Map.class.isAssignableFrom(raw) && peekToken() == Token.BEGIN_OBJECT) {
+                return readMap(args[1]);
+            }
+            return readValue(raw);
+        }
+        if (type instanceof WildcardType) {
+            return readValue(((WildcardType) type).getUpperBounds()[0]);
+        }
+        return readGeneric(); // type variables
+    }
+
+    private Object readValue(Class<?> type) {
+        skipWhitespace();
+        if (peek() == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        if (type == String.class) {
+            char c = peek();
+            if (c == '{' || c == '[') {
+                throw error("Expected string but found '" + c + "'");
+            }
+            return c == '"' ? readString() : String.valueOf(readGeneric());
+        }
+        if (type == Integer.class || type == int.class) {
+            long value = readLong();
+            if (value != (int) value) {
+                throw error("Integer out of range: " + value);
+            }
+            return (int) value;
+        }
+        if (type == Long.class || type == long.class) {
+            return readLong();
+        }
+        if (type == Double.class || type == double.class) {
+            return readDouble();
+        }
+        if (type == Float.class || type == float.class) {
+            return (float) readDouble();
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return readBoolean();
+        }
+        if (type == Instant.class) {
+            String value = readString();
+            try {
+                return Instant.parse(value);
+            } catch (DateTimeParseException e) {
+                throw error("Invalid timestamp " + value);
+            }
+        }
+        if (type.isEnum()) {
+            return enumValue(type, readString());
+        }
+        if (peek() == '{' && isBean(type)) {
+            return readObject(JsonCodec.classInfo(type));
+        }
+        if (peek() == '[' && Collection.class.isAssignableFrom(type)) {
+            return readCollection(type, Object.class);
+        }
+        return readGeneric();
+    }
+
+    /**
+     * Read any value into String, Integer/Long/Double, Boolean, Map or List.
+     */
+    private Object readGeneric() {
+        skipWhitespace();
+        char c = peek();
+        switch (c) {
+            case '{':
+                return readMap(Object.class);
+            case '[':
+                return readCollection(List.class, Object.class);
+            case '"':
+                return readString();
+            case 't':
+            case 'f':
+                return readBoolean();
+            case 'n':
+                expectLiteral("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    private Object readObject(JsonCodec.ClassInfo info) {
+        Object obj = info.newInstance();
+        expect('{');
+        enter();
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            depth--;
+            return obj;
+        }
+        while (true) {
+            skipWhitespace();
+            readStringInto();
+            skipWhitespace();
+            expect(':');
+            JsonCodec.Setter setter = info.findSetter(text);
+            if (setter == null) {
+                skipValue();
+            } else {
+                bind(obj, setter);
+            }
+            skipWhitespace();
+            if (next() == '}') {
+                depth--;
+                return obj;
+            }
+            pos--;
+            expect(',');
+        }
+    }
+
+    private void bind(Object obj, JsonCodec.Setter setter) {
+        skipWhitespace();
+        try {
+            if (setter.kind != JsonCodec.Kind.OBJECT && peek() == 'n') {
+                expectLiteral("null"); // leave primitive at its default
+                return;
+            }
+            switch (setter.kind) {
+                case INT:
+                    setter.handle.invokeExact(obj, (int) (Integer) readValue(int.class));
+                    break;
+                case LONG:
+                    setter.handle.invokeExact(obj, readLong());
+                    break;
+                case DOUBLE:
+                    setter.handle.invokeExact(obj, readDouble());
+                    break;
+                case BOOLEAN:
+                    setter.handle.invokeExact(obj, readBoolean());
+                    break;
+                default:
+                    if (setter.dictionary != null && peek() == '"') {
+                        // Resolve from the buffer; known values allocate nothing
+                        readStringInto();
+                        setter.handle.invokeExact(obj, (Object) setter.dictionary.intern(text));
+                        break;
+                    }
+                    Object value = readValue(setter.genericType);
+                    if (value != null && !setter.type.isPrimitive() && !setter.type.isInstance(value)) {
+                        throw error("Cannot bind " + value.getClass().getSimpleName() + " to "
+                                + setter.name + " (" + setter.type.getSimpleName() + ")");
+                    }
+                    if (value != null || !setter.type.isPrimitive()) {
+                        setter.handle.invokeExact(obj, value);
+                    }
+                    break;
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw error("Failed to set " + setter.name + ": " + t.getMessage());
+        }
+    }
+
+    private Map<String, Object> readMap(Type valueType) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        expect('{');
+        enter();
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            depth--;
+            return map;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            map.put(key, readValue(valueType));
+            skipWhitespace();
+            if (next() == '}') {
+                depth--;
+                return map;
+            }
+            pos--;
+            expect(',');
+        }
+    }
+
+    private Collection<Object> readCollection(Class<?> collectionType, Type elementType) {
+        Collection<Object> collection = Set.class.isAssignableFrom(collectionType)
+                ? new LinkedHashSet<>()
+                : new ArrayList<>();
+        beginArray();
+        while (hasNext()) {
+            collection.add(readValue(elementType));
+        }
+        endArray();
+        return collection;
+    }
+
+    private void skipValue() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '{' || c == '[') {
+            int start = depth;
+            do {
+                c = next();
+                if (c == '"') {
+                    pos--;
+                    readStringInto();
+                } else if (c == '{' || c == '[') {
+                    enter();
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > start);
+        } else if (c == '"') {
+            readStringInto();
+        } else {
+            readGeneric();
+        }
+    }
+
+    private String readString() {
+        readStringInto();
+        return text.toString();
+    }
+
+    /**
+     * Read a quoted string into the shared buffer, decoding escapes.
+     */
+    private void readStringInto() {
+        expect('"');
+        text.setLength(0);
+        while (true) {
+            // Copy runs of plain characters in bulk
+            int start = pos;
+            while (pos < limit && buffer[pos] != '"' && buffer[pos] != '\\') {
+                pos++;
+            }
+            text.append(buffer, start, pos - start);
+            if (text.length() > maxStringLength) {
+                throw new LimitExceededException("String longer than " + maxStringLength + " characters");
+            }
+            char c = next();
+            if (c == '"') {
+                return;
+            }
+            if (c != '\\') {
+                pos--; // buffer was refilled
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    text.append(escaped);
+                    break;
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    text.append((char) readHex4());
+                    break;
+                default:
+                    throw error("Invalid escape \\" + escaped);
+            }
+        }
+    }
+
+    private int readHex4() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(next(), 16);
+            if (digit < 0) {
+                throw error("Invalid unicode escape");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private boolean readBoolean() {
+        skipWhitespace();
+        if (peek() == 't') {
+            expectLiteral("true");
+            return true;
+        }
+        if (peek() == 'f') {
+            expectLiteral("false");
+            return false;
+        }
+        if (peek() == '"') {
+            return Boolean.parseBoolean(readString());
+        }
+        throw error("Expected boolean");
+    }
+
+    private long readLong() {
+        skipWhitespace();
+        if (peek() == '"') {
+            return parseLong(readString().trim());
+        }
+        double value = readNumberToken();
+        if (numberIntegral && !numberSimple) {
+            return parseLong(text.toString());
+        }
+        if (value != Math.rint(value)) {
+            throw error("Expected integer but got " + text);
+        }
+        return (long) value;
+    }
+
+    private double readDouble() {
+        skipWhitespace();
+        if (peek() == '"') {
+            String value = readString().trim();
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw error("Invalid number " + value);
+            }
+        }
+        return readNumberToken();
+    }
+
+    private Number readNumber() {
+        double value = readNumberToken();
+        if (!numberIntegral) {
+            return value;
+        }
+        long l = numberSimple ? (long) value : parseLong(text.toString());
+        if (l == (int) l) {
+            return (int) l;
+        }
+        return l;
+    }
+
+    /**
+     * Scan a number token into the text buffer. Plain decimals with up to 15
+     * significant digits are computed exactly as mantissa / 10^k; anything
+     * else falls back to {@link Double#parseDouble}.
+     */
+    private double readNumberToken() {
+        text.setLength(0);
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            text.append(next());
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        boolean exponent = false;
+        boolean simple = true;
+        int c;
+        while ((c = peekOrEnd()) != -1) {
+            if (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    simple = false;
+                }
+                if (fraction) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !fraction && !exponent) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                exponent = true;
+                simple = false;
+            } else if ((c == '+' || c == '-') && exponent) {
+                simple = false;
+            } else {
+                break;
+            }
+            text.append((char) c);
+            pos++;
+            if (text.length() > 64) {
+                throw error("Number too long");
+            }
+        }
+        if (text.length() == 0 || (negative && text.length() == 1)) {
+            throw error("Expected number");
+        }
+        numberIntegral = !fraction && !exponent;
+        numberSimple = simple && digits <= 15;
+        if (numberSimple && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        numberSimple = false;
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + text);
+        }
+    }
+
+    private long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw error("Invalid integer " + value);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object enumValue(Class<?> type, String name) {
+        try {
+            return Enum.valueOf((Class<? extends Enum>) type, name);
+        } catch (IllegalArgumentException e) {
+            throw error("Unknown " + type.getSimpleName() + " value " + name);
+        }
+    }
+
+    private static boolean isBean(Class<?> type) {
+        return type != Object.class && !type.isPrimitive() && !type.isArray() && !type.isInterface()
+                && !Number.class.isAssignableFrom(type) && !type.getName().startsWith("java.");
+    }
+
+    private void enter() {
+        if (++depth > maxDepth) {
+            throw new LimitExceededException("Nesting deeper than " + maxDepth);
+        }
+    }
+
+    private void expectLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (peekOrEnd() != literal.charAt(i)) {
+                throw error("Expected " + literal);
+            }
+            pos++;
+        }
+    }
+
+    private void expect(char expected) {
+        char c = next();
+        if (c != expected) {
+            throw error("Expected '" + expected + "' but found '" + c + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        int c;
+        while ((c = peekOrEnd()) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            pos++;
+        }
+    }
+
+    private int peekOrEnd() {
+        if (pos >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos];
+    }
+
+    private char peek() {
+        int c = peekOrEnd();
+        if (c == -1) {
+            throw error("Unexpected end of input");
+        }
+        return (char) c;
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private boolean fill() {
+        if (reader == null) {
+            return false;
+        }
+        try {
+            int n = reader.read(buffer, 0, buffer.length);
+            if (n <= 0) {
+                return false;
+            }
+            offset += limit;
+            pos = 0;
+            limit = n;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BadRequestException error(String message) {
+        return new BadRequestException("Invalid JSON at position " + position() + ": " + message);
+    }
+
+    /**
+     * Thrown when the input exceeds a configured size, depth or length limit.
+     */
+    public static class LimitExceededException extends BadRequestException {
+        private static final long serialVersionUID = 1L;
+
+        public LimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Stream wrapper failing once more than maxBytes have been read.
+     */
+    private static final class LimitedInputStream extends InputStream {
+        private final InputStream in;
+        private final long maxBytes;
+        private long count;
+
+        LimitedInputStream(InputStream in, long maxBytes) {
+            this.in = in;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                checkLimit(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, (int) Math.min(len, maxBytes - count + 1));
+            if (n > 0) {
+                checkLimit(n);
+            }
+            return n;
+        }
+
+        private void checkLimit(int n) {
+            count += n;
+            if (count > maxBytes) {
+                throw new LimitExceededException("Body larger than " + maxBytes + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package fraud;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reusable, growable UTF-8 byte buffer for writing JSON.
+ * Strings are encoded straight into the buffer, so serializing a response
+ * costs no intermediate StringBuilders or String copies. Buffers are pooled
+ * rather than thread-local so they also work with short-lived threads.
+ */
+public final class JsonWriter {
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int MAX_POOLED_CAPACITY = 1024 * 1024;
+    private static final BlockingQueue<JsonWriter> POOL = new ArrayBlockingQueue<>(64);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+    private byte[] buffer;
+    private int size;
+
+    public JsonWriter() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public JsonWriter(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    /**
+     * Take a writer from the pool, or create one.
+     */
+    public static JsonWriter acquire() {
+        JsonWriter writer = POOL.poll();
+        return writer != null ? writer : new JsonWriter();
+    }
+
+    /**
+     * Return a writer to the pool. Oversized buffers are dropped.
+     */
+    public static void release(JsonWriter writer) {
+        if (writer.buffer.length <= MAX_POOLED_CAPACITY) {
+            writer.reset();
+            POOL.offer(writer);
+        }
+    }
+
+    public JsonWriter reset() {
+        size = 0;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copy the buffered bytes to an output stream.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * Copy the buffered bytes to an output stream and reset.
+     */
+    public void flushTo(OutputStream out) throws IOException {
+        writeTo(out);
+        reset();
+    }
+
+    public byte[] toByteArray() {
+        byte[] copy = new byte[size];
+        System.arraycopy(buffer, 0, copy, 0, size);
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    public JsonWriter writeByte(char c) {
+        ensure(1);
+        buffer[size++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Append pre-encoded bytes, e.g. a cached {@code "name":} prefix.
+     */
+    public JsonWriter writeRaw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+        return this;
+    }
+
+    public JsonWriter writeNull() {
+        return writeRaw(NULL);
+    }
+
+    public JsonWriter writeBoolean(boolean value) {
+        return writeRaw(value ? TRUE : FALSE);
+    }
+
+    public JsonWriter writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return writeAscii(Long.toString(value));
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int start = size;
+        do {
+            buffer[size++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return this;
+    }
+
+    public JsonWriter writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return writeNull();
+        }
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            writeLong((long) value);
+            return writeAscii(".0");
+        }
+        return writeAscii(Double.toString(value));
+    }
+
+    public JsonWriter writeNumber(Number value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return writeLong(value.longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = value.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                return writeNull();
+            }
+            return value instanceof Double ? writeDouble(d) : writeAscii(value.toString());
+        }
+        return writeAscii(value.toString());
+    }
+
+    /**
+     * Write a quoted, escaped JSON string.
+     */
+    public JsonWriter writeString(String value) {
+        if (value == null) {
+            return writeNull();
+        }
+        ensure(value.length() + 2);
+        buffer[size++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                ensure(1);
+                buffer[size++] = (byte) c;
+            } else {
+                writeEscaped(value, i, c);
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+        ensure(1);
+        buffer[size++] = '"';
+        return this;
+    }
+
+    private void writeEscaped(String value, int i, char c) {
+        ensure(6);
+        switch (c) {
+            case '"':
+                buffer[size++] = '\\';
+                buffer[size++] = '"';
+                break;
+            case '\\':
+                buffer[size++] = '\\';
+                buffer[size++] = '\\';
+                break;
+            case '\n':
+                buffer[size++] = '\\';
+                buffer[size++] = 'n';
+                break;
+            case '\r':
+                buffer[size++] = '\\';
+                buffer[size++] = 'r';
+                break;
+            case '\t':
+                buffer[size++] = '\\';
+                buffer[size++] = 't';
+                break;
+            default:
+                if (c < 0x20) {
+                    buffer[size++] = '\\';
+                    buffer[size++] = 'u';
+                    buffer[size++] = '0';
+                    buffer[size++] = '0';
+                    buffer[size++] = HEX[c >> 4];
+                    buffer[size++] = HEX[c & 0xF];
+                } else if (c < 0x800) {
+                    buffer[size++] = (byte) (0xC0 | (c >> 6));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, value.charAt(i + 1));
+                    buffer[size++] = (byte) (0xF0 | (cp >> 18));
+                    buffer[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buffer[size++] = '?'; // unpaired surrogate
+                } else {
+                    buffer[size++] = (byte) (0xE0 | (c >> 12));
+                    buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+                break;
+        }
+    }
+
+    private JsonWriter writeAscii(String value) {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, size + extra)];
+            System.arraycopy(buffer, 0, grown, 0, size);
+            buffer = grown;
+        }
+    }
+}
@@ -4,7 +4,9 @@ package fraud;
  * Location model class.
  */
 public class Location {
+    @Interned
     private String city;
+    @Interned
     private String country;
 
     public Location() {
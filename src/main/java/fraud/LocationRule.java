@@ -0,0 +1,51 @@
+package fraud;
+
+/**
+ * Flags impossible travel: a move longer than the threshold (km) since the
+ * user's last known location at a physically implausible speed.
+ */
+public class LocationRule implements Rule {
+    private final GeoVelocityDetector detector;
+    private final int threshold;
+
+    public LocationRule(GeoVelocityDetector detector) {
+        this(detector, 500); // 500km distance threshold
+    }
+
+    public LocationRule(GeoVelocityDetector detector, int threshold) {
+        this.detector = detector;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String getName() {
+        return "location_rule";
+    }
+
+    @Override
+    public int getDefaultThreshold() {
+        return 500;
+    }
+
+    @Override
+    public double getRiskScore() {
+        return 35;
+    }
+
+    @Override
+    public Rule withThreshold(int threshold) {
+        return new LocationRule(detector, threshold);
+    }
+
+    @Override
+    public double evaluate(Transaction transaction) {
+        double speedKmh = detector.observe(transaction.getUserId(), transaction.getLocation(),
+                RuleEngine.epochMillis(transaction), threshold);
+        return detector.isImpossible(speedKmh) ? speedKmh : NOT_TRIGGERED;
+    }
+
+    @Override
+    public String describe(double speedKmh) {
+        return "Impossible travel: " + Math.round(speedKmh) + " km/h from last known location";
+    }
+}
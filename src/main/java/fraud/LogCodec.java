@@ -0,0 +1,293 @@
+package fraud;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of the records shared by the write-ahead log and
+ * snapshots, and how each record is applied back to storage.
+ * <p>
+ * Strings and lists are prefixed with a varint of length + 1 (0 is null),
+ * doubles are 8 bytes and instants are a presence byte, seconds and nanos.
+ */
+final class LogCodec {
+    static final byte PUT_TRANSACTION = 1;
+    static final byte UPDATE_TRANSACTION = 2;
+    static final byte DELETE_TRANSACTION = 3;
+    static final byte PUT_ALERT = 4;
+    static final byte UPDATE_ALERT_STATUS = 5;
+    static final byte DELETE_ALERT = 6;
+    static final byte RULE_CONFIG = 7;
+
+    private LogCodec() {
+    }
+
+    static void writeTransaction(Buffer buf, Transaction txn) {
+        buf.writeString(txn.getTransactionId());
+        buf.writeString(txn.getUserId());
+        buf.writeDouble(txn.getAmount());
+        buf.writeString(txn.getCurrency());
+        buf.writeString(txn.getMerchantId());
+        buf.writeInstant(txn.getTimestamp());
+        Location location = txn.getLocation();
+        buf.writeVarLong(location != null ? 1 : 0);
+        if (location != null) {
+            buf.writeString(location.getCity());
+            buf.writeString(location.getCountry());
+        }
+    }
+
+    static void writeAlert(Buffer buf, FraudAlert alert) {
+        buf.writeString(alert.getAlertId());
+        buf.writeString(alert.getTransactionId());
+        buf.writeString(alert.getUserId());
+        buf.writeDouble(alert.getAmount());
+        buf.writeDouble(alert.getRiskScore());
+        buf.writeStrings(alert.getReasons());
+        buf.writeInstant(alert.getTimestamp());
+        buf.writeString(alert.getStatus());
+        buf.writeStrings(alert.getTriggeredRules());
+        buf.writeString(alert.getDescription());
+        buf.writeString(alert.getAlertType());
+        buf.writeString(alert.getSeverity());
+        buf.writeInstant(alert.getCreatedAt());
+        buf.writeString(alert.getResolution());
+        buf.writeVarLong(alert.getCount());
+        buf.writeInstant(alert.getFirstSeen());
+        buf.writeInstant(alert.getLastSeen());
+    }
+
+    static void writeAlertStatus(Buffer buf, FraudAlert alert) {
+        buf.writeString(alert.getAlertId());
+        buf.writeString(alert.getStatus());
+        buf.writeString(alert.getResolution());
+    }
+
+    /**
+     * Rule switches and thresholds; the rules themselves are code
+     */
+    static void writeRuleConfig(Buffer buf, RuleConfig config) {
+        buf.writeVarLong(config.getEnabledRules().size());
+        for (Map.Entry<String, Boolean> rule : config.getEnabledRules().entrySet()) {
+            buf.writeString(rule.getKey());
+            buf.writeVarLong(rule.getValue() ? 1 : 0);
+            buf.writeVarLong(config.getRuleThresholds().getOrDefault(rule.getKey(), 0));
+        }
+    }
+
+    /**
+     * Apply one decoded record. Every record is idempotent, so applying one
+     * that a snapshot already reflects is harmless.
+     */
+    static void apply(byte type, ByteBuffer in, TransactionStorage transactions, AlertStorage alerts,
+            RuleEngine ruleEngine) {
+        switch (type) {
+            case PUT_TRANSACTION:
+                transactions.addTransaction(readTransaction(in));
+                break;
+            case UPDATE_TRANSACTION:
+                Transaction updated = readTransaction(in);
+                transactions.updateTransaction(updated.getTransactionId(), updated);
+                break;
+            case DELETE_TRANSACTION:
+                transactions.deleteTransaction(readString(in));
+                break;
+            case PUT_ALERT:
+                alerts.addAlert(readAlert(in));
+                break;
+            case UPDATE_ALERT_STATUS:
+                String alertId = readString(in);
+                String status = readString(in);
+                alerts.restoreStatus(alertId, status, readString(in));
+                break;
+            case DELETE_ALERT:
+                alerts.deleteAlert(readString(in));
+                break;
+            case RULE_CONFIG:
+                long rules = readVarLong(in);
+                for (long i = 0; i < rules; i++) {
+                    String name = readString(in);
+                    boolean enabled = readVarLong(in) != 0;
+                    int threshold = (int) readVarLong(in);
+                    if (ruleEngine != null) {
+                        ruleEngine.setRuleEnabled(name, enabled);
+                        ruleEngine.setRuleThreshold(name, threshold);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown log record type " + type);
+        }
+    }
+
+    static Transaction readTransaction(ByteBuffer in) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId(readString(in));
+        txn.setUserId(readString(in));
+        txn.setAmount(in.getDouble());
+        txn.setCurrency(readString(in));
+        txn.setMerchantId(readString(in));
+        txn.setTimestamp(readInstant(in));
+        if (readVarLong(in) != 0) {
+            txn.setLocation(new Location(readString(in), readString(in)));
+        }
+        return txn;
+    }
+
+    static FraudAlert readAlert(ByteBuffer in) {
+        FraudAlert alert = new FraudAlert();
+        alert.setAlertId(readString(in));
+        alert.setTransactionId(readString(in));
+        alert.setUserId(readString(in));
+        alert.setAmount(in.getDouble());
+        alert.setRiskScore(in.getDouble());
+        alert.setReasons(readStrings(in));
+        alert.setTimestamp(readInstant(in));
+        alert.setStatus(readString(in));
+        alert.setTriggeredRules(readStrings(in));
+        alert.setDescription(readString(in));
+        alert.setAlertType(readString(in));
+        alert.setSeverity(readString(in));
+        alert.setCreatedAt(readInstant(in));
+        alert.setResolution(readString(in));
+        if (in.hasRemaining()) { // absent in records written before coalescing
+            alert.setCount((int) readVarLong(in));
+            alert.setFirstSeen(readInstant(in));
+            alert.setLastSeen(readInstant(in));
+        }
+        return alert;
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    static List<String> readStrings(ByteBuffer in) {
+        int size = (int) readVarLong(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString(in));
+        }
+        return list;
+    }
+
+    static Instant readInstant(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return Instant.ofEpochSecond(in.getLong(), in.getInt());
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException();
+    }
+
+    /**
+     * Growable buffer a record is encoded into before it is copied out.
+     */
+    static final class Buffer {
+        byte[] bytes = new byte[256];
+        private int size;
+
+        Buffer reset() {
+            size = 0;
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeDouble(double value) {
+            writeLong(Double.doubleToLongBits(value));
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length + 1L);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        void writeStrings(List<String> list) {
+            if (list == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(list.size() + 1L);
+            for (String s : list) {
+                writeString(s);
+            }
+        }
+
+        void writeInstant(Instant instant) {
+            writeByte(instant != null ? 1 : 0);
+            if (instant != null) {
+                writeLong(instant.getEpochSecond());
+                writeInt(instant.getNano());
+            }
+        }
+    }
+}
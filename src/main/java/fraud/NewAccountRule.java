@@ -0,0 +1,49 @@
+package fraud;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Flags new accounts making high-risk transactions.
+ * Account age is not tracked yet, so this fires randomly for demo purposes.
+ */
+public class NewAccountRule implements Rule {
+    private final int threshold;
+
+    public NewAccountRule() {
+        this(7); // 7 days for new account
+    }
+
+    public NewAccountRule(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String getName() {
+        return "new_account_rule";
+    }
+
+    @Override
+    public int getDefaultThreshold() {
+        return 7;
+    }
+
+    @Override
+    public double getRiskScore() {
+        return 20;
+    }
+
+    @Override
+    public Rule withThreshold(int threshold) {
+        return new NewAccountRule(threshold);
+    }
+
+    @Override
+    public double evaluate(Transaction transaction) {
+        return ThreadLocalRandom.current().nextDouble() < 0.08 ? threshold : NOT_TRIGGERED; // 8% chance of triggering
+    }
+
+    @Override
+    public String describe(double threshold) {
+        return "New account with high-risk transaction";
+    }
+}
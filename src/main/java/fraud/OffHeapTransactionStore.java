@@ -0,0 +1,662 @@
+package fraud;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Off-heap transaction store for long retention windows.
+ * <p>
+ * Transactions are kept as primitive columns in direct buffers, in blocks
+ * of 64K rows: amount, epoch millis, and dictionary ids for user, merchant,
+ * currency, city and country. Each column is one contiguous primitive array
+ * per block, so scans are tight loops with no object per row and the heap
+ * only holds a {@link StringDictionary} per column. Objects are rebuilt
+ * only when read. Timestamps are kept to the millisecond.
+ * <p>
+ * Rows form a ring like the heap store: insert number seq lands in row
+ * {@code seq % capacity}, evicting the previous occupant. Transaction IDs
+ * are stored inline (fraud.storage.idBytes wide, longer ones on heap) and
+ * found through an off-heap open-addressing table of row numbers. Each
+ * user's rows are chained newest to oldest through a column holding the
+ * previous row's seq. Per-user pages follow that chain, so unlike the heap
+ * store they are ordered by insertion, newest first, not by timestamp.
+ * <p>
+ * Writers hold the write lock of a StampedLock. Readers use optimistic
+ * reads and retry under the read lock only if a write overlapped.
+ */
+final class OffHeapTransactionStore implements TransactionStore {
+    private static final int BLOCK_SHIFT = 16;
+    private static final int BLOCK_ROWS = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_ROWS - 1;
+    // Keeps the ID hash table within a single buffer
+    static final int MAX_CAPACITY = 1 << 27;
+    private static final int ID_BYTES = Integer.getInteger("fraud.storage.idBytes", 24);
+    private static final byte LONG_ID = (byte) 0xff;
+    private static final long NONE = -1;
+
+    private final int capacity;
+    private final TransactionStats stats;
+    private final StampedLock lock = new StampedLock();
+    private final Block[] blocks;
+    private final IntBuffer index; // row + 1 per slot, 0 when free
+    private final int indexMask;
+    private final Map<Integer, String> longIds = new ConcurrentHashMap<>(); // by row
+    // Unbounded, as every stored value needs a code; column id = code + 1
+    private final StringDictionary users = new StringDictionary(Integer.MAX_VALUE);
+    private final StringDictionary merchants = new StringDictionary(Integer.MAX_VALUE);
+    private final StringDictionary currencies = new StringDictionary(Integer.MAX_VALUE);
+    private final StringDictionary cities = new StringDictionary(Integer.MAX_VALUE);
+    private final StringDictionary countries = new StringDictionary(Integer.MAX_VALUE);
+
+    // Written under the write lock
+    private long[] userHeads = new long[1024]; // newest seq per user id
+    private volatile long nextSeq;
+    private volatile int size;
+
+    OffHeapTransactionStore(int capacity, TransactionStats stats) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        this.capacity = capacity;
+        this.stats = stats;
+        this.blocks = new Block[(capacity + BLOCK_ROWS - 1) >>> BLOCK_SHIFT];
+        for (int b = 0; b < blocks.length; b++) {
+            blocks[b] = new Block(Math.min(BLOCK_ROWS, capacity - (b << BLOCK_SHIFT)));
+        }
+        int slots = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.index = allocate(slots * 4).asIntBuffer();
+        this.indexMask = slots - 1;
+        Arrays.fill(userHeads, NONE);
+    }
+
+    @Override
+    public void put(Transaction transaction) {
+        String id = transaction.getTransactionId();
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(id);
+        long stamp = lock.writeLock();
+        try {
+            int existing = findRow(id, idBytes, hash);
+            if (existing >= 0) {
+                kill(existing);
+            }
+            long seq = nextSeq;
+            int row = row(seq);
+            Block b = block(row);
+            int i = row & BLOCK_MASK;
+            if (b.seqs.get(i) != NONE && b.live.get(i) != 0) {
+                kill(row); // evict the row's previous occupant
+            }
+
+            b.amounts.put(i, transaction.getAmount());
+            b.millis.put(i, transaction.getTimestamp().toEpochMilli());
+            b.merchants.put(i, id(merchants, transaction.getMerchantId()));
+            b.currencies.put(i, id(currencies, transaction.getCurrency()));
+            Location location = transaction.getLocation();
+            b.cities.put(i, location != null ? id(cities, location.getCity()) : 0);
+            b.countries.put(i, location != null ? id(countries, location.getCountry()) : 0);
+            int user = id(users, transaction.getUserId());
+            b.users.put(i, user);
+            b.userPrev.put(i, user > 0 ? head(user) : NONE);
+            if (user > 0) {
+                userHeads[user] = seq;
+            }
+            writeId(b, i, row, id, idBytes);
+            b.idHashes.put(i, hash);
+            b.live.put(i, (byte) 1);
+            b.seqs.put(i, seq);
+            indexInsert(row, hash);
+
+            nextSeq = seq + 1;
+            size++;
+            stats.add(transaction);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private long head(int user) {
+        if (user >= userHeads.length) {
+            int oldLength = userHeads.length;
+            userHeads = Arrays.copyOf(userHeads, Math.max(oldLength * 2, user + 1));
+            Arrays.fill(userHeads, oldLength, userHeads.length, NONE);
+        }
+        return userHeads[user];
+    }
+
+    /**
+     * Drop a stored row: out of the ID table and the stats. The row keeps
+     * its place in its user's chain.
+     */
+    private void kill(int row) {
+        Block b = block(row);
+        int i = row & BLOCK_MASK;
+        stats.remove(materialize(b, i, row));
+        indexRemove(row);
+        longIds.remove(row);
+        b.live.put(i, (byte) 0);
+        size--;
+    }
+
+    @Override
+    public Transaction get(String transactionId) {
+        byte[] idBytes = transactionId.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(transactionId);
+        return read(() -> {
+            int row = findRow(transactionId, idBytes, hash);
+            return row >= 0 ? materialize(block(row), row & BLOCK_MASK, row) : null;
+        });
+    }
+
+    @Override
+    public Transaction update(String transactionId, Transaction changes, Consumer<Transaction> applied) {
+        byte[] idBytes = transactionId.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(transactionId);
+        long stamp = lock.writeLock();
+        try {
+            int row = findRow(transactionId, idBytes, hash);
+            if (row < 0) {
+                return null;
+            }
+            Block b = block(row);
+            int i = row & BLOCK_MASK;
+            Transaction existing = materialize(b, i, row);
+            stats.remove(existing);
+            TransactionStore.applyChanges(existing, changes);
+            b.amounts.put(i, existing.getAmount());
+            b.merchants.put(i, id(merchants, existing.getMerchantId()));
+            Location location = existing.getLocation();
+            b.cities.put(i, location != null ? id(cities, location.getCity()) : 0);
+            b.countries.put(i, location != null ? id(countries, location.getCountry()) : 0);
+            stats.add(existing);
+            applied.accept(existing);
+            return existing;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(String transactionId) {
+        byte[] idBytes = transactionId.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(transactionId);
+        long stamp = lock.writeLock();
+        try {
+            int row = findRow(transactionId, idBytes, hash);
+            if (row < 0) {
+                return false;
+            }
+            kill(row);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        long end = nextSeq;
+        long start = Math.max(0, end - capacity);
+        return new Iterator<>() {
+            private long seq = start;
+            private Transaction next = advance();
+
+            private Transaction advance() {
+                while (seq < end) {
+                    Transaction txn = read(seq++, Long.MIN_VALUE, Long.MAX_VALUE);
+                    if (txn != null) {
+                        return txn;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Transaction result = next;
+                next = advance();
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public List<Transaction> getByUser(String userId) {
+        return materialize(userHits(userId, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Override
+    public List<Transaction> getRecentByUser(String userId, int n) {
+        List<Hit> hits = userHits(userId, Long.MIN_VALUE, Long.MAX_VALUE);
+        return materialize(hits.subList(Math.max(0, hits.size() - n), hits.size()));
+    }
+
+    @Override
+    public List<Transaction> getByUser(String userId, Instant from, Instant to) {
+        return materialize(userHits(userId, millis(from, Long.MIN_VALUE), millis(to, Long.MAX_VALUE)));
+    }
+
+    @Override
+    public Page<Transaction> find(String userId, Instant from, Instant to, String cursor, int limit) {
+        long fromMillis = millis(from, Long.MIN_VALUE);
+        long toMillis = millis(to, Long.MAX_VALUE);
+        List<Transaction> items = new ArrayList<>(Math.min(limit, 256));
+        long lastSeq = NONE;
+        boolean more = false;
+
+        if (userId != null) {
+            long afterSeq = NONE;
+            if (cursor != null) {
+                afterSeq = TransactionStore.parseUserCursor(cursor)[2];
+                if (afterSeq < 0) {
+                    throw new BadRequestException("Invalid cursor: " + cursor);
+                }
+            }
+            for (long seq : userPage(userId, afterSeq, fromMillis, toMillis, limit + 1)) {
+                Transaction txn = read(seq, fromMillis, toMillis);
+                if (txn == null) {
+                    continue; // removed since the chain was read
+                }
+                if (items.size() == limit) {
+                    more = true;
+                    break;
+                }
+                items.add(txn);
+                lastSeq = seq;
+            }
+            String nextCursor = more
+                    ? TransactionStore.userCursor(items.get(items.size() - 1).getTimestamp(), lastSeq)
+                    : null;
+            return new Page<>(items, nextCursor);
+        }
+
+        long end = nextSeq;
+        if (cursor != null) {
+            try {
+                end = Math.min(end, Long.parseLong(Page.decodeCursor('s', cursor)));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+        }
+        long start = Math.max(0, nextSeq - capacity);
+        for (long seq = end - 1; seq >= start; seq--) {
+            Transaction txn = read(seq, fromMillis, toMillis);
+            if (txn == null) {
+                continue;
+            }
+            if (items.size() == limit) {
+                more = true;
+                break;
+            }
+            items.add(txn);
+            lastSeq = seq;
+        }
+        return new Page<>(items, more ? Page.encodeCursor('s', Long.toString(lastSeq)) : null);
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            for (Block b : blocks) {
+                for (int i = 0; i < b.rows; i++) {
+                    b.seqs.put(i, NONE);
+                    b.live.put(i, (byte) 0);
+                }
+            }
+            for (int slot = 0; slot <= indexMask; slot++) {
+                index.put(slot, 0);
+            }
+            longIds.clear();
+            Arrays.fill(userHeads, NONE);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Run a read optimistically, retrying under the read lock if a write
+     * overlapped. A torn read may also throw, which is retried the same way.
+     */
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Read the live row holding seq if its time is in [fromMillis, toMillis)
+     */
+    private Transaction read(long seq, long fromMillis, long toMillis) {
+        return read(() -> {
+            int row = row(seq);
+            Block b = block(row);
+            int i = row & BLOCK_MASK;
+            if (b.seqs.get(i) != seq || b.live.get(i) == 0) {
+                return null;
+            }
+            long millis = b.millis.get(i);
+            return millis >= fromMillis && millis < toMillis ? materialize(b, i, row) : null;
+        });
+    }
+
+    /**
+     * Walk a user's chain and return the live rows in range, ordered by
+     * (time, seq)
+     */
+    private List<Hit> userHits(String userId, long fromMillis, long toMillis) {
+        int user = userId != null ? users.find(userId) + 1 : 0;
+        if (user <= 0) {
+            return new ArrayList<>();
+        }
+        List<Hit> hits = read(() -> {
+            List<Hit> result = new ArrayList<>();
+            long[] heads = userHeads;
+            long seq = user < heads.length ? heads[user] : NONE;
+            for (int steps = 0; seq != NONE && steps < capacity; steps++) {
+                int row = row(seq);
+                Block b = block(row);
+                int i = row & BLOCK_MASK;
+                if (b.seqs.get(i) != seq) {
+                    break; // evicted, and so is everything older
+                }
+                long millis = b.millis.get(i);
+                if (b.live.get(i) != 0 && millis >= fromMillis && millis < toMillis) {
+                    result.add(new Hit(seq, millis));
+                }
+                seq = b.userPrev.get(i);
+            }
+            return result;
+        });
+        hits.sort(Comparator.comparingLong((Hit hit) -> hit.millis).thenComparingLong(hit -> hit.seq));
+        return hits;
+    }
+
+    /**
+     * Walk a user's chain from just past afterSeq (or from the newest row)
+     * and return the seqs of up to n live rows in range, newest first. A
+     * deleted row keeps its place in the chain, so a page can still start
+     * after it; once it is evicted, so is everything older.
+     */
+    private List<Long> userPage(String userId, long afterSeq, long fromMillis, long toMillis, int n) {
+        int user = users.find(userId) + 1;
+        if (user <= 0) {
+            return new ArrayList<>();
+        }
+        return read(() -> {
+            List<Long> result = new ArrayList<>(Math.min(n, 256));
+            long seq;
+            if (afterSeq == NONE) {
+                long[] heads = userHeads;
+                seq = user < heads.length ? heads[user] : NONE;
+            } else {
+                int row = row(afterSeq);
+                Block b = block(row);
+                int i = row & BLOCK_MASK;
+                if (b.seqs.get(i) != afterSeq || b.users.get(i) != user) {
+                    return result;
+                }
+                seq = b.userPrev.get(i);
+            }
+            for (int steps = 0; seq != NONE && steps < capacity && result.size() < n; steps++) {
+                int row = row(seq);
+                Block b = block(row);
+                int i = row & BLOCK_MASK;
+                if (b.seqs.get(i) != seq) {
+                    break;
+                }
+                long millis = b.millis.get(i);
+                if (b.live.get(i) != 0 && millis >= fromMillis && millis < toMillis) {
+                    result.add(seq);
+                }
+                seq = b.userPrev.get(i);
+            }
+            return result;
+        });
+    }
+
+    private List<Transaction> materialize(List<Hit> hits) {
+        List<Transaction> result = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            Transaction txn = read(hit.seq, Long.MIN_VALUE, Long.MAX_VALUE);
+            if (txn != null) {
+                result.add(txn);
+            }
+        }
+        return result;
+    }
+
+    private Transaction materialize(Block b, int i, int row) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId(readId(b, i, row));
+        txn.setUserId(value(users, b.users.get(i)));
+        txn.setAmount(b.amounts.get(i));
+        txn.setCurrency(value(currencies, b.currencies.get(i)));
+        txn.setMerchantId(value(merchants, b.merchants.get(i)));
+        txn.setTimestamp(Instant.ofEpochMilli(b.millis.get(i)));
+        int city = b.cities.get(i);
+        int country = b.countries.get(i);
+        if (city != 0 || country != 0) {
+            txn.setLocation(new Location(value(cities, city), value(countries, country)));
+        }
+        return txn;
+    }
+
+    private void writeId(Block b, int i, int row, String id, byte[] idBytes) {
+        int base = i * ID_BYTES;
+        if (idBytes.length < ID_BYTES) {
+            b.ids.put(base, (byte) idBytes.length);
+            b.ids.put(base + 1, idBytes);
+            longIds.remove(row);
+        } else {
+            b.ids.put(base, LONG_ID);
+            longIds.put(row, id);
+        }
+    }
+
+    private String readId(Block b, int i, int row) {
+        int base = i * ID_BYTES;
+        byte length = b.ids.get(base);
+        if (length == LONG_ID) {
+            return longIds.get(row);
+        }
+        byte[] bytes = new byte[length];
+        b.ids.get(base + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean idEquals(Block b, int i, int row, String id, byte[] idBytes) {
+        int base = i * ID_BYTES;
+        byte length = b.ids.get(base);
+        if (length == LONG_ID) {
+            return id.equals(longIds.get(row));
+        }
+        if (length != idBytes.length) {
+            return false;
+        }
+        for (int k = 0; k < idBytes.length; k++) {
+            if (b.ids.get(base + 1 + k) != idBytes[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int findRow(String id, byte[] idBytes, int hash) {
+        for (int slot = hash & indexMask, probes = 0; probes <= indexMask; slot = (slot + 1) & indexMask, probes++) {
+            int entry = index.get(slot);
+            if (entry == 0) {
+                return -1;
+            }
+            int row = entry - 1;
+            Block b = block(row);
+            int i = row & BLOCK_MASK;
+            if (b.idHashes.get(i) == hash && idEquals(b, i, row, id, idBytes)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private void indexInsert(int row, int hash) {
+        int slot = hash & indexMask;
+        while (index.get(slot) != 0) {
+            slot = (slot + 1) & indexMask;
+        }
+        index.put(slot, row + 1);
+    }
+
+    /**
+     * Remove a row from the ID table, shifting later entries of the probe
+     * run back so no tombstones are needed
+     */
+    private void indexRemove(int row) {
+        int hole = block(row).idHashes.get(row & BLOCK_MASK) & indexMask;
+        while (index.get(hole) != row + 1) {
+            hole = (hole + 1) & indexMask;
+        }
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & indexMask;
+            int entry = index.get(slot);
+            if (entry == 0) {
+                break;
+            }
+            int home = block(entry - 1).idHashes.get((entry - 1) & BLOCK_MASK) & indexMask;
+            if (((slot - home) & indexMask) >= ((slot - hole) & indexMask)) {
+                index.put(hole, entry);
+                hole = slot;
+            }
+        }
+        index.put(hole, 0);
+    }
+
+    private int row(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    private Block block(int row) {
+        return blocks[row >>> BLOCK_SHIFT];
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Column id of a value; 0 is null
+     */
+    private static int id(StringDictionary dictionary, String value) {
+        return value != null ? dictionary.code(value) + 1 : 0;
+    }
+
+    private static String value(StringDictionary dictionary, int id) {
+        return id > 0 ? dictionary.get(id - 1) : null;
+    }
+
+    private static long millis(Instant instant, long unbounded) {
+        return instant != null ? instant.toEpochMilli() : unbounded;
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Columns for up to 64K rows.
+     */
+    private static final class Block {
+        final int rows;
+        final LongBuffer seqs; // occupant's insert number, NONE when never used
+        final ByteBuffer live; // 1 while stored, 0 once deleted or evicted
+        final LongBuffer userPrev; // seq of the same user's previous row
+        final DoubleBuffer amounts;
+        final LongBuffer millis;
+        final IntBuffer users;
+        final IntBuffer merchants;
+        final IntBuffer currencies;
+        final IntBuffer cities;
+        final IntBuffer countries;
+        final IntBuffer idHashes;
+        final ByteBuffer ids;
+
+        Block(int rows) {
+            this.rows = rows;
+            this.seqs = allocate(rows * 8).asLongBuffer();
+            this.live = allocate(rows);
+            this.userPrev = allocate(rows * 8).asLongBuffer();
+            this.amounts = allocate(rows * 8).asDoubleBuffer();
+            this.millis = allocate(rows * 8).asLongBuffer();
+            this.users = allocate(rows * 4).asIntBuffer();
+            this.merchants = allocate(rows * 4).asIntBuffer();
+            this.currencies = allocate(rows * 4).asIntBuffer();
+            this.cities = allocate(rows * 4).asIntBuffer();
+            this.countries = allocate(rows * 4).asIntBuffer();
+            this.idHashes = allocate(rows * 4).asIntBuffer();
+            this.ids = allocate(rows * ID_BYTES);
+            for (int i = 0; i < rows; i++) {
+                seqs.put(i, NONE);
+            }
+        }
+    }
+
+    /**
+     * A row found on a user's chain.
+     */
+    private static final class Hit {
+        final long seq;
+        final long millis;
+
+        Hit(long seq, long millis) {
+            this.seq = seq;
+            this.millis = millis;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fraud;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of results plus an opaque cursor for the next page.
+ * The cursor is null on the last page.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Wrap a storage position as an opaque cursor; kind tells storages apart.
+     */
+    static String encodeCursor(char kind, String position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((kind + position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Unwrap a cursor made by {@link #encodeCursor}, checking its kind.
+     */
+    static String decodeCursor(char kind, String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+        if (decoded.isEmpty() || decoded.charAt(0) != kind) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+        return decoded.substring(1);
+    }
+}
@@ -0,0 +1,351 @@
+package fraud;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rolling-window metrics over scored transactions.
+ * <p>
+ * Two fixed rings of time buckets (per minute and per hour) hold counts,
+ * amount sums, amount ranges and fraud counts per rule. A bucket is reused
+ * once its slot comes round again, so memory stays constant. A window query
+ * sums the buckets it covers: minute buckets for windows up to the minute
+ * ring's span, hour buckets beyond that.
+ * <p>
+ * Counters are updated without locking. An update racing with the reuse of
+ * a bucket slot (only possible for an event as old as the whole ring) may
+ * land in the wrong bucket, so totals are approximate at that edge.
+ */
+public class RollingMetrics {
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final Bucket[] minutes;
+    private final Bucket[] hours;
+    private final ZoneRules zoneRules;
+    private final ConcurrentHashMap<String, Integer> ruleIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRuleId = new AtomicInteger();
+    // Counter ids for the rule array of the pipeline seen last
+    private volatile PipelineRules pipelineRules;
+
+    public RollingMetrics() {
+        this(Integer.getInteger("fraud.metrics.minutes", 24 * 60),
+                Integer.getInteger("fraud.metrics.hours", 90 * 24),
+                ZoneId.systemDefault());
+    }
+
+    public RollingMetrics(int minuteBuckets, int hourBuckets, ZoneId zone) {
+        this.minutes = buckets(minuteBuckets);
+        this.hours = buckets(hourBuckets);
+        this.zoneRules = zone.getRules();
+    }
+
+    /**
+     * Record a scored transaction at the given time
+     */
+    public void record(long epochMillis, double amount, FraudDecision decision) {
+        int[] fraudRules = null;
+        long triggered = 0;
+        if (decision.isFraud()) {
+            Rule[] rules = decision.getRules();
+            if (rules != null) {
+                // Pipeline decisions: index the counters by the triggered
+                // mask, without rendering rule names
+                fraudRules = ruleIds(rules);
+                triggered = decision.getTriggeredMask();
+            } else {
+                List<String> names = decision.getTriggeredRules();
+                fraudRules = new int[Math.min(names.size(), RulePipeline.MAX_RULES)];
+                for (int i = 0; i < fraudRules.length; i++) {
+                    fraudRules[i] = ruleId(names.get(i));
+                }
+                triggered = fraudRules.length == Long.SIZE ? -1L : (1L << fraudRules.length) - 1;
+            }
+        }
+        record(minutes, epochMillis / MINUTE_MILLIS, amount, decision.isFraud(), fraudRules, triggered);
+        record(hours, epochMillis / HOUR_MILLIS, amount, decision.isFraud(), fraudRules, triggered);
+    }
+
+    /**
+     * Count one transaction; bit i of triggered set means the rule with
+     * counter id fraudRules[i] fired
+     */
+    private void record(Bucket[] ring, long index, double amount, boolean fraud, int[] fraudRules,
+            long triggered) {
+        Bucket bucket = ring[Math.floorMod(index, ring.length)];
+        if (!bucket.claim(index)) {
+            return; // older than the ring covers
+        }
+        bucket.count.increment();
+        bucket.amount.add(amount);
+        bucket.amountRanges[amountRange(amount)].increment();
+        if (fraud) {
+            bucket.fraudCount.increment();
+            for (long bits = triggered; bits != 0; bits &= bits - 1) {
+                int rule = fraudRules[Long.numberOfTrailingZeros(bits)];
+                if (rule >= 0) {
+                    bucket.fraudByRule.incrementAndGet(rule);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the counter ids of a pipeline's rules, by position. Pipelines
+     * keep one rule array, so this only looks names up when it changes.
+     */
+    private int[] ruleIds(Rule[] rules) {
+        PipelineRules cached = pipelineRules;
+        if (cached == null || cached.rules != rules) {
+            int[] ids = new int[rules.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = ruleId(rules[i].getName());
+            }
+            cached = new PipelineRules(rules, ids);
+            pipelineRules = cached;
+        }
+        return cached.ids;
+    }
+
+    private int ruleId(String rule) {
+        Integer id = ruleIds.get(rule);
+        if (id == null) {
+            id = ruleIds.computeIfAbsent(rule, k -> nextRuleId.getAndIncrement());
+        }
+        return id < RulePipeline.MAX_RULES ? id : -1;
+    }
+
+    private static int amountRange(double amount) {
+        if (amount < 100)
+            return 0;
+        if (amount < 500)
+            return 1;
+        if (amount < 1000)
+            return 2;
+        return 3;
+    }
+
+    /**
+     * Get the longest window that can be answered
+     */
+    public Duration getMaxWindow() {
+        return Duration.ofHours(hours.length);
+    }
+
+    /**
+     * Aggregate the window ending now
+     */
+    public Window query(Duration window) {
+        return query(window, System.currentTimeMillis());
+    }
+
+    /**
+     * Aggregate the window ending at the given time
+     */
+    public Window query(Duration window, long nowMillis) {
+        if (window.isNegative() || window.isZero() || window.compareTo(getMaxWindow()) > 0) {
+            throw new BadRequestException("Window must be between 1m and " + getMaxWindow().toHours() + "h");
+        }
+        boolean useMinutes = window.toMinutes() <= minutes.length;
+        Bucket[] ring = useMinutes ? minutes : hours;
+        long unit = useMinutes ? MINUTE_MILLIS : HOUR_MILLIS;
+        long last = nowMillis / unit;
+        long first = last - Math.max(1, (window.toMillis() + unit - 1) / unit) + 1;
+
+        Window result = new Window(window);
+        for (Bucket bucket : ring) {
+            long index = bucket.index;
+            if (index < first || index > last) {
+                continue;
+            }
+            long count = bucket.count.sum();
+            result.count += count;
+            result.totalAmount += bucket.amount.sum();
+            result.fraudCount += bucket.fraudCount.sum();
+            for (int i = 0; i < result.amountRanges.length; i++) {
+                result.amountRanges[i] += bucket.amountRanges[i].sum();
+            }
+            for (Map.Entry<String, Integer> rule : ruleIds.entrySet()) {
+                if (rule.getValue() < RulePipeline.MAX_RULES) {
+                    long fired = bucket.fraudByRule.get(rule.getValue());
+                    if (fired > 0) {
+                        result.fraudByRule.merge(rule.getKey(), fired, Long::sum);
+                    }
+                }
+            }
+            // Whole bucket is attributed to the local hour/day it starts in
+            Instant start = Instant.ofEpochMilli(index * unit);
+            long local = start.getEpochSecond() + zoneRules.getOffset(start).getTotalSeconds();
+            result.hourly[(int) (Math.floorMod(local, 86400L) / 3600)] += count;
+            result.daily[Math.floorMod(Math.floorDiv(local, 86400L) + 3, 7)] += count;
+        }
+        return result;
+    }
+
+    private static Bucket[] buckets(int n) {
+        Bucket[] ring = new Bucket[n];
+        for (int i = 0; i < n; i++) {
+            ring[i] = new Bucket();
+        }
+        return ring;
+    }
+
+    /**
+     * Parse a window such as "15m", "1h", "24h", "7d" or "90d"
+     */
+    public static Duration parseWindow(String window) {
+        if (window == null || window.length() < 2) {
+            throw new BadRequestException("Invalid window: " + window);
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(window.substring(0, window.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid window: " + window);
+        }
+        switch (Character.toLowerCase(window.charAt(window.length() - 1))) {
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            case 'd':
+                return Duration.ofDays(amount);
+            default:
+                throw new BadRequestException("Invalid window: " + window);
+        }
+    }
+
+    private static final class PipelineRules {
+        final Rule[] rules;
+        final int[] ids;
+
+        PipelineRules(Rule[] rules, int[] ids) {
+            this.rules = rules;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * Counters for one minute or hour.
+     */
+    private static final class Bucket {
+        volatile long index = Long.MIN_VALUE;
+        final LongAdder count = new LongAdder();
+        final DoubleAdder amount = new DoubleAdder();
+        final LongAdder fraudCount = new LongAdder();
+        final LongAdder[] amountRanges = { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() };
+        final AtomicLongArray fraudByRule = new AtomicLongArray(RulePipeline.MAX_RULES);
+
+        /**
+         * Make this bucket hold the given index, resetting it if it held an
+         * older one. Returns false if it already holds a newer index.
+         */
+        boolean claim(long newIndex) {
+            if (index == newIndex) {
+                return true;
+            }
+            synchronized (this) {
+                if (index > newIndex) {
+                    return false;
+                }
+                if (index < newIndex) {
+                    count.reset();
+                    amount.reset();
+                    fraudCount.reset();
+                    for (LongAdder range : amountRanges) {
+                        range.reset();
+                    }
+                    for (int i = 0; i < fraudByRule.length(); i++) {
+                        fraudByRule.set(i, 0);
+                    }
+                    index = newIndex;
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Aggregates over one rolling window.
+     */
+    public static class Window {
+        private final Duration window;
+        private long count;
+        private double totalAmount;
+        private long fraudCount;
+        private final long[] amountRanges = new long[4];
+        private final long[] hourly = new long[24];
+        private final long[] daily = new long[7];
+        private final Map<String, Long> fraudByRule = new LinkedHashMap<>();
+
+        Window(Duration window) {
+            this.window = window;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getTotalAmount() {
+            return totalAmount;
+        }
+
+        public long getFraudCount() {
+            return fraudCount;
+        }
+
+        public Map<String, Long> getFraudByRule() {
+            return fraudByRule;
+        }
+
+        /**
+         * Get transactions per local hour of day, 0-23
+         */
+        public long[] getHourlyDistribution() {
+            return hourly;
+        }
+
+        /**
+         * Get transactions per local day of week, Monday first
+         */
+        public long[] getDailyDistribution() {
+            return daily;
+        }
+
+        /**
+         * Get transactions per amount range ($0-$100, $100-$500, $500-$1000, $1000+)
+         */
+        public Map<String, Long> getAmountRanges() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int i = 0; i < amountRanges.length; i++) {
+                result.put(TransactionStats.AMOUNT_RANGES[i], amountRanges[i]);
+            }
+            return result;
+        }
+
+        /**
+         * Get transactions per day of week keyed by day name
+         */
+        public Map<String, Long> getDayOfWeekDistribution() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int i = 0; i < daily.length; i++) {
+                result.put(TransactionStats.DAY_NAMES[i], daily[i]);
+            }
+            return result;
+        }
+    }
+}
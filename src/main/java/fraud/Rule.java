@@ -0,0 +1,51 @@
+package fraud;
+
+/**
+ * Service provider interface for fraud detection rules.
+ * <p>
+ * Implementations are immutable: {@link #withThreshold(int)} returns a
+ * compiled copy with the threshold held in a primitive field, and the
+ * {@link RuleEngine} evaluates an array of such copies for every transaction.
+ * Custom rules can be added with {@link RuleEngine#registerRule(Rule)} or by
+ * listing them in {@code META-INF/services/fraud.Rule}.
+ */
+public interface Rule {
+
+    /**
+     * Value returned by {@link #evaluate(Transaction)} when the rule does not fire.
+     */
+    double NOT_TRIGGERED = Double.NaN;
+
+    /**
+     * Unique rule name, e.g. "amount_rule".
+     */
+    String getName();
+
+    /**
+     * Threshold used until one is configured.
+     */
+    int getDefaultThreshold();
+
+    /**
+     * Risk score added when the rule fires.
+     */
+    double getRiskScore();
+
+    /**
+     * Return a copy of this rule compiled with the given threshold.
+     */
+    Rule withThreshold(int threshold);
+
+    /**
+     * Evaluate a transaction. Returns {@link #NOT_TRIGGERED} when the rule does
+     * not fire, otherwise a rule-specific detail value (amount, count, speed...)
+     * that {@link #describe(double)} turns into a reason.
+     * Must not allocate on the common path.
+     */
+    double evaluate(Transaction transaction);
+
+    /**
+     * Human-readable reason for a detail value returned by {@link #evaluate(Transaction)}.
+     */
+    String describe(double detail);
+}
@@ -0,0 +1,115 @@
+package fraud;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the rule configuration.
+ * Every change produces a new snapshot with a higher version and a freshly
+ * compiled {@link RulePipeline}; the {@link RuleEngine} publishes it with a
+ * single atomic swap so scoring threads never see a half-applied update.
+ */
+public final class RuleConfig {
+    private final long version;
+    private final Map<String, Rule> rules;
+    private final Map<String, Boolean> enabledRules;
+    private final Map<String, Integer> ruleThresholds;
+    private final RulePipeline pipeline;
+
+    private RuleConfig(long version, Map<String, Rule> rules, Map<String, Boolean> enabledRules,
+            Map<String, Integer> ruleThresholds) {
+        this.version = version;
+        this.rules = Collections.unmodifiableMap(rules);
+        this.enabledRules = Collections.unmodifiableMap(enabledRules);
+        this.ruleThresholds = Collections.unmodifiableMap(ruleThresholds);
+        this.pipeline = compile();
+    }
+
+    /**
+     * Empty configuration with no rules.
+     */
+    public static RuleConfig empty() {
+        return new RuleConfig(0, new LinkedHashMap<>(), new LinkedHashMap<>(), new LinkedHashMap<>());
+    }
+
+    /**
+     * Return a copy with the rule registered, enabled with its default threshold
+     * unless it was already configured.
+     */
+    public RuleConfig withRule(Rule rule) {
+        String name = rule.getName();
+        if (!rules.containsKey(name) && rules.size() >= RulePipeline.MAX_RULES) {
+            throw new IllegalStateException("Cannot register more than " + RulePipeline.MAX_RULES + " rules");
+        }
+        Map<String, Rule> newRules = new LinkedHashMap<>(rules);
+        Map<String, Boolean> newEnabled = new LinkedHashMap<>(enabledRules);
+        Map<String, Integer> newThresholds = new LinkedHashMap<>(ruleThresholds);
+        newRules.put(name, rule);
+        newEnabled.putIfAbsent(name, true);
+        newThresholds.putIfAbsent(name, rule.getDefaultThreshold());
+        return new RuleConfig(version + 1, newRules, newEnabled, newThresholds);
+    }
+
+    /**
+     * Return a copy with the rule enabled or disabled, or this snapshot if
+     * nothing changes. Returns null for an unknown rule.
+     */
+    public RuleConfig withRuleEnabled(String name, boolean enabled) {
+        Boolean current = enabledRules.get(name);
+        if (current == null) {
+            return null;
+        }
+        if (current == enabled) {
+            return this;
+        }
+        Map<String, Boolean> newEnabled = new LinkedHashMap<>(enabledRules);
+        newEnabled.put(name, enabled);
+        return new RuleConfig(version + 1, new LinkedHashMap<>(rules), newEnabled, new LinkedHashMap<>(ruleThresholds));
+    }
+
+    /**
+     * Return a copy with the rule threshold changed, or this snapshot if
+     * nothing changes. Returns null for an unknown rule.
+     */
+    public RuleConfig withRuleThreshold(String name, int threshold) {
+        Integer current = ruleThresholds.get(name);
+        if (current == null) {
+            return null;
+        }
+        if (current == threshold) {
+            return this;
+        }
+        Map<String, Integer> newThresholds = new LinkedHashMap<>(ruleThresholds);
+        newThresholds.put(name, threshold);
+        return new RuleConfig(version + 1, new LinkedHashMap<>(rules), new LinkedHashMap<>(enabledRules), newThresholds);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, Boolean> getEnabledRules() {
+        return enabledRules;
+    }
+
+    public Map<String, Integer> getRuleThresholds() {
+        return ruleThresholds;
+    }
+
+    public RulePipeline getPipeline() {
+        return pipeline;
+    }
+
+    private RulePipeline compile() {
+        List<Rule> compiled = new ArrayList<>();
+        for (Rule rule : rules.values()) {
+            if (enabledRules.get(rule.getName())) {
+                compiled.add(rule.withThreshold(ruleThresholds.get(rule.getName())));
+            }
+        }
+        return new RulePipeline(compiled.toArray(new Rule[0]), version);
+    }
+}
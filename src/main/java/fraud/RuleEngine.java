@@ -1,94 +1,52 @@
 package fraud;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * Main fraud detection rule engine that evaluates all rules and makes
  * decisions.
+ * <p>
+ * Rules are registered as {@link Rule} prototypes and compiled into an
+ * immutable {@link RuleConfig} snapshot. Scoring reads the current snapshot
+ * with a single volatile read; configuration changes copy the snapshot and
+ * swap it in atomically.
  */
 public class RuleEngine {
 
-    private final Map<String, Boolean> enabledRules;
-    private final Map<String, Integer> ruleThresholds;
+    private final AtomicReference<RuleConfig> config;
+    private final VelocityTracker velocityTracker;
+    private final GeoVelocityDetector geoVelocityDetector;
 
     // Risk score thresholds
     private double highRiskThreshold = 75.0;
     private double mediumRiskThreshold = 50.0;
 
     public RuleEngine() {
-        this.enabledRules = new HashMap<>();
-        this.ruleThresholds = new HashMap<>();
+        this.config = new AtomicReference<>(RuleConfig.empty());
+        this.velocityTracker = new VelocityTracker();
+        this.geoVelocityDetector = new GeoVelocityDetector();
         initializeDefaultRules();
     }
 
     private void initializeDefaultRules() {
-        enabledRules.put("amount_rule", true);
-        enabledRules.put("velocity_rule", true);
-        enabledRules.put("location_rule", true);
-        enabledRules.put("new_account_rule", true);
-
-        ruleThresholds.put("amount_rule", 1000); // $1000 threshold
-        ruleThresholds.put("velocity_rule", 5); // 5 transactions per minute
-        ruleThresholds.put("location_rule", 500); // 500km distance threshold
-        ruleThresholds.put("new_account_rule", 7); // 7 days for new account
+        registerRule(new AmountRule());
+        registerRule(new VelocityRule(velocityTracker));
+        registerRule(new LocationRule(geoVelocityDetector));
+        registerRule(new NewAccountRule());
+
+        // Rules plugged in through META-INF/services/fraud.Rule
+        for (Rule rule : ServiceLoader.load(Rule.class)) {
+            registerRule(rule);
+        }
     }
 
     /**
      * Analyze a transaction for fraud.
      */
     public FraudDecision analyze(Transaction transaction) {
-        List<String> reasons = new ArrayList<>();
-        List<String> triggeredRules = new ArrayList<>();
-        double riskScore = 0;
-
-        // Amount rule
-        if (enabledRules.getOrDefault("amount_rule", true)) {
-            if (transaction.getAmount() > ruleThresholds.getOrDefault("amount_rule", 1000)) {
-                riskScore += 30;
-                reasons.add(
-                        "Transaction amount $" + String.format("%.2f", transaction.getAmount()) + " exceeds threshold");
-                triggeredRules.add("amount_rule");
-            }
-        }
-
-        // Velocity rule (random for demo)
-        if (enabledRules.getOrDefault("velocity_rule", true)) {
-            if (Math.random() < 0.1) { // 10% chance of triggering
-                riskScore += 25;
-                reasons.add("High transaction velocity detected");
-                triggeredRules.add("velocity_rule");
-            }
-        }
-
-        // Location rule
-        if (enabledRules.getOrDefault("location_rule", true)) {
-            if (Math.random() < 0.05) { // 5% chance of triggering
-                riskScore += 35;
-                reasons.add("Unusual location detected");
-                triggeredRules.add("location_rule");
-            }
-        }
-
-        // New account rule
-        if (enabledRules.getOrDefault("new_account_rule", true)) {
-            if (Math.random() < 0.08) { // 8% chance of triggering
-                riskScore += 20;
-                reasons.add("New account with high-risk transaction");
-                triggeredRules.add("new_account_rule");
-            }
-        }
-
-        // Cap risk score at 100
-        riskScore = Math.min(riskScore, 100);
-
-        boolean isFraud = riskScore >= 50;
-
-        return new FraudDecision(
-                transaction.getTransactionId(),
-                isFraud,
-                riskScore,
-                reasons.isEmpty() ? List.of("Transaction passed all checks") : reasons,
-                triggeredRules);
+        return config.get().getPipeline().evaluate(transaction);
     }
 
     /**
@@ -98,11 +56,25 @@ public class RuleEngine {
         return analyze(transaction);
     }
 
+    /**
+     * Get the current configuration snapshot.
+     */
+    public RuleConfig getConfig() {
+        return config.get();
+    }
+
+    /**
+     * Register a custom rule, enabled with its default threshold.
+     */
+    public void registerRule(Rule rule) {
+        update(current -> current.withRule(rule));
+    }
+
     /**
      * Get all enabled rules.
      */
     public Map<String, Boolean> getEnabledRules() {
-        return new HashMap<>(enabledRules);
+        return new HashMap<>(config.get().getEnabledRules());
     }
 
     /**
@@ -110,7 +82,7 @@ public class RuleEngine {
      */
     public int getEnabledRulesCount() {
         int count = 0;
-        for (Boolean enabled : enabledRules.values()) {
+        for (Boolean enabled : config.get().getEnabledRules().values()) {
             if (enabled)
                 count++;
         }
@@ -121,7 +93,7 @@ public class RuleEngine {
      * Get total rule count.
      */
     public int getTotalRulesCount() {
-        return enabledRules.size();
+        return config.get().getEnabledRules().size();
     }
 
     /**
@@ -129,11 +101,7 @@ public class RuleEngine {
      */
     public boolean setRuleEnabled(String ruleName, boolean enabled) {
         String key = ruleName.toLowerCase().replace(" ", "_");
-        if (enabledRules.containsKey(key)) {
-            enabledRules.put(key, enabled);
-            return true;
-        }
-        return false;
+        return update(current -> current.withRuleEnabled(key, enabled));
     }
 
     /**
@@ -141,11 +109,7 @@ public class RuleEngine {
      */
     public boolean setRuleThreshold(String ruleName, int threshold) {
         String key = ruleName.toLowerCase().replace(" ", "_");
-        if (ruleThresholds.containsKey(key)) {
-            ruleThresholds.put(key, threshold);
-            return true;
-        }
-        return false;
+        return update(current -> current.withRuleThreshold(key, threshold));
     }
 
     /**
@@ -153,6 +117,44 @@ public class RuleEngine {
      */
     public int getRuleThreshold(String ruleName) {
         String key = ruleName.toLowerCase().replace(" ", "_");
-        return ruleThresholds.getOrDefault(key, 0);
+        return config.get().getRuleThresholds().getOrDefault(key, 0);
+    }
+
+    /**
+     * Rebuild per-user velocity windows and last known positions from stored
+     * history, oldest first, e.g. after a restart.
+     */
+    public void restoreUserState(Iterable<Transaction> history) {
+        Map<String, Integer> thresholds = config.get().getRuleThresholds();
+        int velocityThreshold = thresholds.getOrDefault("velocity_rule", 0);
+        int minDistanceKm = thresholds.getOrDefault("location_rule", 0);
+        for (Transaction transaction : history) {
+            long millis = epochMillis(transaction);
+            velocityTracker.record(transaction.getUserId(), millis, velocityThreshold);
+            geoVelocityDetector.observe(transaction.getUserId(), transaction.getLocation(), millis, minDistanceKm);
+        }
+    }
+
+    static long epochMillis(Transaction transaction) {
+        return transaction.getTimestamp() != null
+                ? transaction.getTimestamp().toEpochMilli()
+                : System.currentTimeMillis();
+    }
+
+    /**
+     * Copy-on-write update. Returns false if the change targets an unknown
+     * rule (the operator returned null).
+     */
+    private boolean update(UnaryOperator<RuleConfig> change) {
+        while (true) {
+            RuleConfig current = config.get();
+            RuleConfig next = change.apply(current);
+            if (next == null) {
+                return false;
+            }
+            if (next == current || config.compareAndSet(current, next)) {
+                return true;
+            }
+        }
     }
 }
@@ -0,0 +1,70 @@
+package fraud;
+
+/**
+ * Immutable, compiled set of enabled rules.
+ * Built by the {@link RuleEngine} whenever the rule configuration changes and
+ * evaluated as a plain array for every transaction, so the scoring path does
+ * no map lookups, no boxing and no string formatting.
+ */
+public final class RulePipeline {
+    /** Maximum number of rules, one bit each in the triggered mask. */
+    public static final int MAX_RULES = Long.SIZE;
+
+    private final Rule[] rules;
+    private final long configVersion;
+
+    public RulePipeline(Rule[] rules) {
+        this(rules, 0);
+    }
+
+    public RulePipeline(Rule[] rules, long configVersion) {
+        if (rules.length > MAX_RULES) {
+            throw new IllegalArgumentException("At most " + MAX_RULES + " rules are supported");
+        }
+        this.rules = rules.clone();
+        this.configVersion = configVersion;
+    }
+
+    /**
+     * Evaluate all rules against a transaction.
+     */
+    public FraudDecision evaluate(Transaction transaction) {
+        double riskScore = 0;
+        long triggered = 0;
+        double[] details = null;
+
+        for (int i = 0; i < rules.length; i++) {
+            double detail = rules[i].evaluate(transaction);
+            if (!Double.isNaN(detail)) {
+                riskScore += rules[i].getRiskScore();
+                triggered |= 1L << i;
+                if (details == null) {
+                    details = new double[rules.length];
+                }
+                details[i] = detail;
+            }
+        }
+
+        // Cap risk score at 100
+        riskScore = Math.min(riskScore, 100);
+        boolean isFraud = riskScore >= 50;
+
+        // Reasons are rendered lazily from the rule codes and details
+        return new FraudDecision(transaction.getTransactionId(), isFraud, riskScore, rules, triggered, details,
+                configVersion);
+    }
+
+    /**
+     * Get version of the configuration this pipeline was compiled from.
+     */
+    public long getConfigVersion() {
+        return configVersion;
+    }
+
+    /**
+     * Get number of compiled rules.
+     */
+    public int size() {
+        return rules.length;
+    }
+}
@@ -0,0 +1,263 @@
+package fraud;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Periodic snapshots of transactions, alerts and rule settings, so a restart
+ * loads the newest snapshot and replays only the log written after it.
+ * <p>
+ * Snapshots are fuzzy and never stop writers: the log's LSN is read first,
+ * then the stores are walked with their lock-free iterators. Storage applies
+ * a change before logging it, so every change up to that LSN is in the walk.
+ * Changes made during the walk may be in it too and are replayed again on
+ * restore, which is harmless because every log record is idempotent. Rule
+ * settings come from the engine's immutable copy-on-write config.
+ * <p>
+ * A snapshot file is {@code [int magic][int version][long lsn]}, then
+ * {@code [int length][byte type][payload]} frames in the log's record
+ * encoding, a zero length and a CRC32C of everything before it. It is
+ * written to a temporary file, forced and renamed into place. The two newest
+ * snapshots are kept and the log is truncated up to the older one, so
+ * either can be restored.
+ */
+public class SnapshotManager implements Closeable {
+    private static final int MAGIC = 0x46524453; // "FRDS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final int KEEP = 2;
+
+    private final Path dir;
+    private final WriteAheadLog wal;
+    private final TransactionStorage transactionStorage;
+    private final AlertStorage alertStorage;
+    private final RuleEngine ruleEngine;
+    private ScheduledExecutorService scheduler;
+    private volatile long lastSnapshotLsn;
+
+    public SnapshotManager(Path dir, WriteAheadLog wal, TransactionStorage transactionStorage,
+            AlertStorage alertStorage, RuleEngine ruleEngine) throws IOException {
+        this.dir = dir;
+        this.wal = wal;
+        this.transactionStorage = transactionStorage;
+        this.alertStorage = alertStorage;
+        this.ruleEngine = ruleEngine;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Load the newest readable snapshot, replay the log after it and rebuild
+     * per-user rule state. Returns the number of log records replayed.
+     */
+    public long recover() throws IOException {
+        long lsn = 0;
+        List<Path> files = snapshots();
+        for (int i = files.size() - 1; i >= 0; i--) {
+            try {
+                lsn = load(files.get(i));
+                System.out.println("Loaded snapshot " + files.get(i).getFileName());
+                break;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Skipping unreadable snapshot " + files.get(i).getFileName() + ": "
+                        + e.getMessage());
+                transactionStorage.clear();
+                alertStorage.clear();
+            }
+        }
+        wal.skipTo(lsn);
+        long replayed = wal.replay(transactionStorage, alertStorage, ruleEngine, lsn);
+        ruleEngine.restoreUserState(transactionStorage);
+        lastSnapshotLsn = lsn;
+        return replayed;
+    }
+
+    private long load(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (data.limit() < HEADER_BYTES + 8 || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("not a snapshot");
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(data.slice(0, data.limit() - 4));
+            if ((int) crc.getValue() != data.getInt(data.limit() - 4)) {
+                throw new IOException("checksum mismatch");
+            }
+            long lsn = data.getLong(8);
+            data.position(HEADER_BYTES);
+            int length;
+            while ((length = data.getInt()) > 0) {
+                byte type = data.get();
+                ByteBuffer payload = data.slice(data.position(), length);
+                LogCodec.apply(type, payload, transactionStorage, alertStorage, ruleEngine);
+                data.position(data.position() + length);
+            }
+            return lsn;
+        }
+    }
+
+    /**
+     * Take a snapshot now unless nothing was logged since the last one.
+     * Returns the LSN it covers.
+     */
+    public synchronized long snapshot() throws IOException {
+        long lsn = wal.getAppendedLsn();
+        if (lsn == lastSnapshotLsn) {
+            return lsn;
+        }
+
+        Path target = dir.resolve(PREFIX + String.format("%020d", lsn) + SUFFIX);
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            FrameWriter writer = new FrameWriter(out);
+            writer.header(lsn);
+            LogCodec.Buffer buf = new LogCodec.Buffer();
+            LogCodec.writeRuleConfig(buf.reset(), ruleEngine.getConfig());
+            writer.frame(LogCodec.RULE_CONFIG, buf);
+            for (Transaction txn : transactionStorage) {
+                LogCodec.writeTransaction(buf.reset(), txn);
+                writer.frame(LogCodec.PUT_TRANSACTION, buf);
+            }
+            for (FraudAlert alert : alertStorage) {
+                LogCodec.writeAlert(buf.reset(), alert);
+                writer.frame(LogCodec.PUT_ALERT, buf);
+            }
+            writer.finish();
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        lastSnapshotLsn = lsn;
+
+        // Keep the newest snapshots and the log they need
+        List<Path> files = snapshots();
+        for (int i = 0; i < files.size() - KEEP; i++) {
+            Files.delete(files.get(i));
+        }
+        if (files.size() >= KEEP) {
+            wal.truncate(lsnOf(files.get(files.size() - KEEP)));
+        }
+        return lsn;
+    }
+
+    /**
+     * Snapshot in the background at a fixed interval
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (intervalSeconds <= 0 || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Snapshot failed: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public long getLastSnapshotLsn() {
+        return lastSnapshotLsn;
+    }
+
+    /**
+     * Stop the background snapshots
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private List<Path> snapshots() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null); // zero-padded names sort by LSN
+        return files;
+    }
+
+    private static long lsnOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Buffers frames into large writes and checksums everything written.
+     */
+    private static final class FrameWriter {
+        private final FileChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private final CRC32C crc = new CRC32C();
+
+        FrameWriter(FileChannel out) {
+            this.out = out;
+        }
+
+        void header(long lsn) throws IOException {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(lsn);
+        }
+
+        void frame(byte type, LogCodec.Buffer payload) throws IOException {
+            if (buffer.remaining() < 5) {
+                drain();
+            }
+            buffer.putInt(payload.size()).put(type);
+            int offset = 0;
+            while (offset < payload.size()) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(buffer.remaining(), payload.size() - offset);
+                buffer.put(payload.bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        void finish() throws IOException {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            buffer.putInt(0);
+            drain();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package fraud;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent, bounded string dictionary giving each distinct value a small
+ * integer code and one canonical instance.
+ * <p>
+ * Lookups are lock-free and accept any CharSequence, so a parser can resolve
+ * a known value straight from its buffer without allocating a String. Adding
+ * a value takes a lock. Once maxSize values are held nothing more is added:
+ * intern returns a plain copy and code returns -1, so a high-cardinality
+ * field cannot grow the dictionary without bound.
+ * <p>
+ * The dictionaries shared by the codec and storage come from
+ * {@link #named(String)} and hold up to fraud.intern.maxEntries values each.
+ */
+public final class StringDictionary {
+    private static final int MAX_ENTRIES = Integer.getInteger("fraud.intern.maxEntries", 100_000);
+    private static final Map<String, StringDictionary> NAMED = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+    private volatile AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(16); // at most half full
+    private volatile String[] values = new String[8]; // by code
+    private volatile int size; // written under the lock
+
+    public StringDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the shared dictionary with a name, creating it on first use
+     */
+    public static StringDictionary named(String name) {
+        return NAMED.computeIfAbsent(name, k -> new StringDictionary(MAX_ENTRIES));
+    }
+
+    /**
+     * Get the canonical instance of a value, adding it if there is room
+     */
+    public String intern(CharSequence value) {
+        if (value == null) {
+            return null;
+        }
+        Entry entry = lookup(value);
+        if (entry == null) {
+            entry = add(value);
+        }
+        return entry != null ? entry.value : value.toString();
+    }
+
+    /**
+     * Get the code of a value, adding it if there is room; -1 when full
+     */
+    public int code(CharSequence value) {
+        Entry entry = lookup(value);
+        if (entry == null) {
+            entry = add(value);
+        }
+        return entry != null ? entry.code : -1;
+    }
+
+    /**
+     * Get the code of a value without adding it; -1 if absent
+     */
+    public int find(CharSequence value) {
+        Entry entry = lookup(value);
+        return entry != null ? entry.code : -1;
+    }
+
+    /**
+     * Get the value with a code, or null
+     */
+    public String get(int code) {
+        String[] current = values;
+        return code >= 0 && code < current.length ? current[code] : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private Entry lookup(CharSequence value) {
+        int hash = hash(value);
+        AtomicReferenceArray<Entry> table = slots;
+        int mask = table.length() - 1;
+        for (int i = hash & mask;; i = (i + 1) & mask) {
+            Entry entry = table.get(i);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.hash == hash && entry.value.contentEquals(value)) {
+                return entry;
+            }
+        }
+    }
+
+    private synchronized Entry add(CharSequence value) {
+        Entry entry = lookup(value);
+        if (entry != null || size >= maxSize) {
+            return entry;
+        }
+        String canonical = value.toString();
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = canonical;
+        values = current; // publish the value before its code
+
+        AtomicReferenceArray<Entry> table = slots;
+        if ((size + 1) * 2 > table.length()) {
+            // Readers keep probing the old table until the new one is published
+            AtomicReferenceArray<Entry> grown = new AtomicReferenceArray<>(table.length() * 2);
+            for (int i = 0; i < table.length(); i++) {
+                if (table.get(i) != null) {
+                    insert(grown, table.get(i));
+                }
+            }
+            table = grown;
+        }
+        entry = new Entry(canonical, hash(canonical), size);
+        insert(table, entry);
+        slots = table;
+        size++;
+        return entry;
+    }
+
+    private static void insert(AtomicReferenceArray<Entry> table, Entry entry) {
+        int mask = table.length() - 1;
+        int i = entry.hash & mask;
+        while (table.get(i) != null) {
+            i = (i + 1) & mask;
+        }
+        table.set(i, entry);
+    }
+
+    /**
+     * String.hashCode, spread, computed the same way for any CharSequence
+     */
+    private static int hash(CharSequence value) {
+        int h;
+        if (value instanceof String) {
+            h = value.hashCode();
+        } else {
+            h = 0;
+            for (int i = 0; i < value.length(); i++) {
+                h = 31 * h + value.charAt(i);
+            }
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        final String value;
+        final int hash;
+        final int code;
+
+        Entry(String value, int hash, int code) {
+            this.value = value;
+            this.hash = hash;
+            this.code = code;
+        }
+    }
+}
@@ -7,9 +7,12 @@ import java.time.Instant;
  */
 public class Transaction {
     private String transactionId;
+    @Interned
     private String userId;
     private double amount;
+    @Interned
     private String currency;
+    @Interned
     private String merchantId;
     private Instant timestamp;
     private Location location;
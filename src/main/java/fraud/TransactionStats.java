@@ -0,0 +1,222 @@
+package fraud;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates over the stored transactions, kept up to date as transactions
+ * are added and removed so the stats endpoints never scan the store.
+ * <p>
+ * All counters are striped adders, so concurrent writers don't contend on a
+ * single cache line. Readers get a moment-in-time sum that may be slightly
+ * behind in-flight updates.
+ */
+public class TransactionStats {
+    static final String[] DAY_NAMES = { "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday",
+            "Sunday" };
+    static final String[] AMOUNT_RANGES = { "$0-$100", "$100-$500", "$500-$1000", "$1000+" };
+    static final String[] DETAILED_AMOUNT_RANGES = { "0-100", "101-500", "501-1000", "1001-5000", "5001-10000",
+            "10000+" };
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private final ZoneRules zoneRules;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder totalAmount = new DoubleAdder();
+    private final LongAdder[] hourly = adders(24);
+    private final LongAdder[] daily = adders(7);
+    private final LongAdder[] amountRanges = adders(AMOUNT_RANGES.length);
+    private final LongAdder[] detailedAmountRanges = adders(DETAILED_AMOUNT_RANGES.length);
+    private final ConcurrentHashMap<String, LongAdder> countries = new ConcurrentHashMap<>();
+    // By country, then city, so recording needs no "city, country" key
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, LongAdder>> cities = new ConcurrentHashMap<>();
+
+    public TransactionStats() {
+        this(ZoneId.systemDefault());
+    }
+
+    public TransactionStats(ZoneId zone) {
+        this.zoneRules = zone.getRules();
+    }
+
+    /**
+     * Count a transaction that was stored
+     */
+    public void add(Transaction txn) {
+        record(txn, 1);
+    }
+
+    /**
+     * Uncount a transaction that was deleted, evicted or replaced
+     */
+    public void remove(Transaction txn) {
+        record(txn, -1);
+    }
+
+    private void record(Transaction txn, int delta) {
+        count.add(delta);
+        double amount = txn.getAmount();
+        totalAmount.add(delta * amount);
+
+        Instant ts = txn.getTimestamp();
+        if (ts != null) {
+            // Local day and hour straight from the offset, no ZonedDateTime
+            long local = ts.getEpochSecond() + zoneRules.getOffset(ts).getTotalSeconds();
+            long day = Math.floorDiv(local, SECONDS_PER_DAY);
+            hourly[Math.floorMod(local, SECONDS_PER_DAY) / 3600].add(delta);
+            daily[Math.floorMod(day + 3, 7)].add(delta); // 1970-01-01 was a Thursday
+        }
+
+        amountRanges[amountRange(amount)].add(delta);
+        detailedAmountRanges[detailedAmountRange(amount)].add(delta);
+
+        Location location = txn.getLocation();
+        if (location != null) {
+            String country = location.getCountry() != null ? location.getCountry() : "Unknown";
+            String city = location.getCity() != null ? location.getCity() : "Unknown";
+            countries.computeIfAbsent(country, k -> new LongAdder()).add(delta);
+            cities.computeIfAbsent(country, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(city, k -> new LongAdder()).add(delta);
+        }
+    }
+
+    private static int amountRange(double amount) {
+        if (amount < 100)
+            return 0;
+        if (amount < 500)
+            return 1;
+        if (amount < 1000)
+            return 2;
+        return 3;
+    }
+
+    private static int detailedAmountRange(double amount) {
+        if (amount <= 100)
+            return 0;
+        if (amount <= 500)
+            return 1;
+        if (amount <= 1000)
+            return 2;
+        if (amount <= 5000)
+            return 3;
+        if (amount <= 10000)
+            return 4;
+        return 5;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalAmount() {
+        return totalAmount.sum();
+    }
+
+    /**
+     * Get transactions per local hour of day, 0-23
+     */
+    public long[] getHourlyDistribution() {
+        return sums(hourly);
+    }
+
+    /**
+     * Get transactions per local day of week, Monday first
+     */
+    public long[] getDailyDistribution() {
+        return sums(daily);
+    }
+
+    /**
+     * Get transactions per day of week keyed by day name
+     */
+    public Map<String, Long> getDayOfWeekDistribution() {
+        return labelled(DAY_NAMES, daily);
+    }
+
+    /**
+     * Get transactions per amount range ($0-$100, $100-$500, $500-$1000, $1000+)
+     */
+    public Map<String, Long> getAmountRanges() {
+        return labelled(AMOUNT_RANGES, amountRanges);
+    }
+
+    /**
+     * Get transactions per amount range, split up to 10000+
+     */
+    public Map<String, Long> getDetailedAmountRanges() {
+        return labelled(DETAILED_AMOUNT_RANGES, detailedAmountRanges);
+    }
+
+    public Map<String, Long> getCountryDistribution() {
+        return snapshot(countries);
+    }
+
+    /**
+     * Get transactions per "city, country"
+     */
+    public Map<String, Long> getCityDistribution() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentHashMap<String, LongAdder>> country : cities.entrySet()) {
+            for (Map.Entry<String, LongAdder> city : country.getValue().entrySet()) {
+                long sum = city.getValue().sum();
+                if (sum > 0) {
+                    result.put(city.getKey() + ", " + country.getKey(), sum);
+                }
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        count.reset();
+        totalAmount.reset();
+        for (LongAdder[] adders : new LongAdder[][] { hourly, daily, amountRanges, detailedAmountRanges }) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+        countries.clear();
+        cities.clear();
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] result = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            result[i] = adders[i].sum();
+        }
+        return result;
+    }
+
+    private static Map<String, Long> labelled(String[] labels, LongAdder[] adders) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            result.put(labels[i], adders[i].sum());
+        }
+        return result;
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            long sum = entry.getValue().sum();
+            if (sum > 0) {
+                result.put(entry.getKey(), sum);
+            }
+        }
+        return result;
+    }
+}
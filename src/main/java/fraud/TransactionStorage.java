@@ -1,96 +1,189 @@
 package fraud;
 
+import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
 
 /**
- * In-memory storage for transactions with CRUD operations.
- * Thread-safe implementation using ConcurrentHashMap.
+ * Storage for transactions with CRUD operations.
+ * <p>
+ * Transactions live in a {@link TransactionStore} backend chosen with
+ * fraud.storage.backend: "heap" (default) keeps the last 10000 as objects in
+ * an on-heap ring; "offheap" keeps fraud.storage.capacity of them in
+ * primitive off-heap columns for long retention. Either way this class
+ * assigns defaults, keeps the stats and writes the write-ahead log.
  */
-public class TransactionStorage {
-    private final Map<String, Transaction> transactions = new ConcurrentHashMap<>();
-    private final Deque<String> transactionOrder = new ConcurrentLinkedDeque<>();
-    private static final int MAX_TRANSACTIONS = 10000;
+public class TransactionStorage implements Iterable<Transaction> {
+    // Same dictionaries the JSON codec decodes the @Interned fields through
+    private static final StringDictionary USERS = StringDictionary.named("userId");
+    private static final StringDictionary CURRENCIES = StringDictionary.named("currency");
+    private static final StringDictionary MERCHANTS = StringDictionary.named("merchantId");
+    private static final StringDictionary CITIES = StringDictionary.named("city");
+    private static final StringDictionary COUNTRIES = StringDictionary.named("country");
+
+    private final TransactionStats stats = new TransactionStats();
+    private final TransactionStore store;
+    private volatile WriteAheadLog wal;
+
+    public TransactionStorage() {
+        this(System.getProperty("fraud.storage.backend", "heap"));
+    }
+
+    public TransactionStorage(String backend) {
+        switch (backend) {
+            case "heap":
+                this.store = new HeapTransactionStore(stats);
+                break;
+            case "offheap":
+                this.store = new OffHeapTransactionStore(Integer.getInteger("fraud.storage.capacity", 1_000_000),
+                        stats);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown storage backend: " + backend);
+        }
+    }
+
+    /**
+     * Log every change from now on. Attach after replaying the log.
+     * Changes are applied in memory first, then logged, and only return
+     * once the log is synced.
+     */
+    public void setWriteAheadLog(WriteAheadLog wal) {
+        this.wal = wal;
+    }
 
     /**
      * Create a new transaction
      */
     public Transaction addTransaction(Transaction transaction) {
+        prepare(transaction);
+        store.put(transaction);
+        WriteAheadLog log = wal;
+        if (log != null) {
+            log.sync(log.logTransaction(transaction));
+        }
+        return transaction;
+    }
+
+    /**
+     * Create a batch of transactions, in order, waiting for the log once
+     */
+    public void addTransactions(List<Transaction> batch) {
+        WriteAheadLog log = wal;
+        long lsn = 0;
+        for (Transaction transaction : batch) {
+            prepare(transaction);
+            store.put(transaction);
+            if (log != null) {
+                lsn = log.logTransaction(transaction);
+            }
+        }
+        if (log != null) {
+            log.sync(lsn);
+        }
+    }
+
+    private static void prepare(Transaction transaction) {
         if (transaction.getTransactionId() == null) {
-            transaction.setTransactionId("txn-" + UUID.randomUUID().toString().substring(0, 8));
+            transaction.setTransactionId(IdGenerator.shared().next("txn-"));
         }
         if (transaction.getTimestamp() == null) {
             transaction.setTimestamp(java.time.Instant.now());
         }
+        intern(transaction);
+    }
 
-        transactions.put(transaction.getTransactionId(), transaction);
-        transactionOrder.addLast(transaction.getTransactionId());
-
-        // Cleanup old transactions if we exceed the limit
-        while (transactionOrder.size() > MAX_TRANSACTIONS) {
-            String oldId = transactionOrder.pollFirst();
-            if (oldId != null) {
-                transactions.remove(oldId);
-            }
+    /**
+     * Swap repeated fields for their canonical instances, so stored
+     * transactions share them whichever way they arrived
+     */
+    private static void intern(Transaction transaction) {
+        transaction.setUserId(USERS.intern(transaction.getUserId()));
+        transaction.setCurrency(CURRENCIES.intern(transaction.getCurrency()));
+        transaction.setMerchantId(MERCHANTS.intern(transaction.getMerchantId()));
+        Location location = transaction.getLocation();
+        if (location != null) {
+            location.setCity(CITIES.intern(location.getCity()));
+            location.setCountry(COUNTRIES.intern(location.getCountry()));
         }
-
-        return transaction;
     }
 
     /**
      * Get transaction by ID
      */
     public Transaction getTransaction(String transactionId) {
-        return transactions.get(transactionId);
+        return store.get(transactionId);
     }
 
     /**
-     * Get all transactions
+     * Get all transactions, oldest first
      */
     public List<Transaction> getAllTransactions() {
-        List<Transaction> result = new ArrayList<>();
-        for (String id : transactionOrder) {
-            Transaction txn = transactions.get(id);
-            if (txn != null) {
-                result.add(txn);
-            }
+        List<Transaction> result = new ArrayList<>(store.size());
+        for (Transaction txn : this) {
+            result.add(txn);
         }
         return result;
     }
 
     /**
-     * Get transactions by user ID
+     * Iterate over transactions in insertion order, oldest first
+     */
+    @Override
+    public Iterator<Transaction> iterator() {
+        return store.iterator();
+    }
+
+    /**
+     * Get a user's recent transactions, oldest first
      */
     public List<Transaction> getTransactionsByUser(String userId) {
-        List<Transaction> result = new ArrayList<>();
-        for (Transaction txn : transactions.values()) {
-            if (userId.equals(txn.getUserId())) {
-                result.add(txn);
-            }
-        }
-        return result;
+        return store.getByUser(userId);
     }
 
     /**
-     * Update transaction
+     * Get a user's last n transactions, oldest first
+     */
+    public List<Transaction> getRecentTransactionsByUser(String userId, int n) {
+        return store.getRecentByUser(userId, n);
+    }
+
+    /**
+     * Get a user's transactions with from <= timestamp < to, oldest first.
+     * Null bounds are open.
+     */
+    public List<Transaction> getTransactionsByUser(String userId, Instant from, Instant to) {
+        return store.getByUser(userId, from, to);
+    }
+
+    /**
+     * Get a page of transactions, newest first, optionally filtered by user
+     * and by from <= timestamp < to. Pass the previous page's cursor to
+     * continue; null bounds and a null cursor are open.
+     */
+    public Page<Transaction> findTransactions(String userId, Instant from, Instant to, String cursor, int limit) {
+        return store.find(userId, from, to, cursor, limit);
+    }
+
+    /**
+     * Update transaction. The new state is logged while the store still
+     * holds the transaction, so concurrent updates reach the log in the
+     * order they were applied; only the sync waits outside.
      */
     public boolean updateTransaction(String transactionId, Transaction updated) {
-        Transaction existing = transactions.get(transactionId);
-        if (existing == null) {
+        intern(updated);
+        WriteAheadLog log = wal;
+        long[] lsn = new long[1];
+        Transaction result = store.update(transactionId, updated, applied -> {
+            if (log != null) {
+                lsn[0] = log.logTransactionUpdate(applied);
+            }
+        });
+        if (result == null) {
             return false;
         }
-
-        if (updated.getAmount() > 0) {
-            existing.setAmount(updated.getAmount());
-        }
-        if (updated.getLocation() != null) {
-            existing.setLocation(updated.getLocation());
-        }
-        if (updated.getMerchantId() != null) {
-            existing.setMerchantId(updated.getMerchantId());
+        if (log != null) {
+            log.sync(lsn[0]);
         }
-
         return true;
     }
 
@@ -98,91 +191,53 @@ public class TransactionStorage {
      * Delete transaction
      */
     public boolean deleteTransaction(String transactionId) {
-        Transaction removed = transactions.remove(transactionId);
-        if (removed != null) {
-            transactionOrder.remove(transactionId);
-            return true;
+        if (!store.remove(transactionId)) {
+            return false;
         }
-        return false;
+        WriteAheadLog log = wal;
+        if (log != null) {
+            log.sync(log.logTransactionDelete(transactionId));
+        }
+        return true;
     }
 
     /**
      * Get transaction count
      */
     public int getTransactionCount() {
-        return transactions.size();
+        return store.size();
+    }
+
+    /**
+     * Get the incrementally maintained aggregates
+     */
+    public TransactionStats getStats() {
+        return stats;
     }
 
     /**
      * Get fraud pattern statistics
      */
     public Map<String, Object> getPatternStats() {
-        Map<String, Object> stats = new LinkedHashMap<>();
-
-        // Hourly distribution
-        int[] hourlyDistribution = new int[24];
-        int[] dailyDistribution = new int[7];
-        Map<String, Integer> amountRanges = new LinkedHashMap<>();
-        amountRanges.put("0-100", 0);
-        amountRanges.put("101-500", 0);
-        amountRanges.put("501-1000", 0);
-        amountRanges.put("1001-5000", 0);
-        amountRanges.put("5001-10000", 0);
-        amountRanges.put("10000+", 0);
-
-        for (Transaction txn : transactions.values()) {
-            if (txn.getTimestamp() != null) {
-                java.time.Instant ts = txn.getTimestamp();
-                java.time.ZoneId zone = java.time.ZoneId.systemDefault();
-                java.time.LocalDateTime local = ts.atZone(zone).toLocalDateTime();
-
-                hourlyDistribution[local.getHour()]++;
-                dailyDistribution[local.getDayOfWeek().getValue() - 1]++;
-            }
-
-            // Amount ranges
-            double amount = txn.getAmount();
-            if (amount <= 100) {
-                amountRanges.put("0-100", amountRanges.get("0-100") + 1);
-            } else if (amount <= 500) {
-                amountRanges.put("101-500", amountRanges.get("101-500") + 1);
-            } else if (amount <= 1000) {
-                amountRanges.put("501-1000", amountRanges.get("501-1000") + 1);
-            } else if (amount <= 5000) {
-                amountRanges.put("1001-5000", amountRanges.get("1001-5000") + 1);
-            } else if (amount <= 10000) {
-                amountRanges.put("5001-10000", amountRanges.get("5001-10000") + 1);
-            } else {
-                amountRanges.put("10000+", amountRanges.get("10000+") + 1);
-            }
-        }
-
-        stats.put("hourlyDistribution", hourlyDistribution);
-        stats.put("dailyDistribution", dailyDistribution);
-        stats.put("amountRanges", amountRanges);
-
-        return stats;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hourlyDistribution", stats.getHourlyDistribution());
+        result.put("dailyDistribution", stats.getDailyDistribution());
+        result.put("amountRanges", stats.getDetailedAmountRanges());
+        return result;
     }
 
     /**
      * Get country distribution
      */
-    public Map<String, Integer> getCountryDistribution() {
-        Map<String, Integer> countryMap = new LinkedHashMap<>();
-        for (Transaction txn : transactions.values()) {
-            if (txn.getLocation() != null && txn.getLocation().getCountry() != null) {
-                String country = txn.getLocation().getCountry();
-                countryMap.put(country, countryMap.getOrDefault(country, 0) + 1);
-            }
-        }
-        return countryMap;
+    public Map<String, Long> getCountryDistribution() {
+        return stats.getCountryDistribution();
     }
 
     /**
      * Clear all transactions
      */
     public void clear() {
-        transactions.clear();
-        transactionOrder.clear();
+        store.clear();
+        stats.clear();
     }
 }
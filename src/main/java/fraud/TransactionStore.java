@@ -0,0 +1,101 @@
+package fraud;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Backend holding the transactions behind {@link TransactionStorage}.
+ * Implementations keep the shared {@link TransactionStats} in step with
+ * every insert, replacement, update, delete and eviction.
+ */
+interface TransactionStore extends Iterable<Transaction> {
+
+    /**
+     * Insert, replacing any transaction with the same ID
+     */
+    void put(Transaction transaction);
+
+    Transaction get(String transactionId);
+
+    /**
+     * Apply changes to a stored transaction and return its new state, or
+     * null if it is not stored
+     */
+    default Transaction update(String transactionId, Transaction changes) {
+        return update(transactionId, changes, applied -> {
+        });
+    }
+
+    /**
+     * Same, handing the new state to applied before any other update of the
+     * same transaction can run, so updates are logged in the order they
+     * were applied
+     */
+    Transaction update(String transactionId, Transaction changes, Consumer<Transaction> applied);
+
+    boolean remove(String transactionId);
+
+    int size();
+
+    /**
+     * Get a user's recent transactions, oldest first
+     */
+    List<Transaction> getByUser(String userId);
+
+    /**
+     * Get a user's last n transactions, oldest first
+     */
+    List<Transaction> getRecentByUser(String userId, int n);
+
+    /**
+     * Get a user's transactions with from <= timestamp < to, oldest first
+     */
+    List<Transaction> getByUser(String userId, Instant from, Instant to);
+
+    /**
+     * Get a page of transactions, newest first; see
+     * {@link TransactionStorage#findTransactions}
+     */
+    Page<Transaction> find(String userId, Instant from, Instant to, String cursor, int limit);
+
+    /**
+     * Remove everything; the caller resets the stats
+     */
+    void clear();
+
+    /**
+     * Apply the fields an update may change: a positive amount, a location
+     * and a merchant
+     */
+    static void applyChanges(Transaction target, Transaction changes) {
+        if (changes.getAmount() > 0) {
+            target.setAmount(changes.getAmount());
+        }
+        if (changes.getLocation() != null) {
+            target.setLocation(changes.getLocation());
+        }
+        if (changes.getMerchantId() != null) {
+            target.setMerchantId(changes.getMerchantId());
+        }
+    }
+
+    /**
+     * Cursor for per-user pages, which are ordered by (timestamp, seq)
+     */
+    static String userCursor(Instant timestamp, long seq) {
+        return Page.encodeCursor('u', timestamp.getEpochSecond() + "." + timestamp.getNano() + "." + seq);
+    }
+
+    /**
+     * Decode a per-user cursor into {epochSecond, nano, seq}
+     */
+    static long[] parseUserCursor(String cursor) {
+        String[] parts = Page.decodeCursor('u', cursor).split("\\.");
+        try {
+            return new long[] { Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]) };
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+}
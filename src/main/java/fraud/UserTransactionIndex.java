@@ -0,0 +1,234 @@
+package fraud;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary index of each user's most recent transactions, ordered by time
+ * (ties broken by insertion sequence number).
+ * <p>
+ * Every user has a bounded ring sorted by timestamp, so the last N
+ * transactions or a time range can be read in O(k) without touching the
+ * rest of the store. Once a user exceeds the per-user limit the oldest
+ * entries drop out of the index (they stay in the main store until it
+ * evicts them). Users with no remaining entries are removed.
+ */
+class UserTransactionIndex {
+    private final ConcurrentHashMap<String, History> histories = new ConcurrentHashMap<>();
+    private final int maxPerUser;
+
+    UserTransactionIndex(int maxPerUser) {
+        this.maxPerUser = maxPerUser;
+    }
+
+    void add(HeapTransactionStore.Entry entry) {
+        String key = entry.transaction.getUserId();
+        if (key == null) {
+            return;
+        }
+        histories.compute(key, (userId, history) -> {
+            if (history == null) {
+                history = new History(Math.min(maxPerUser, 16));
+            }
+            history.add(entry, maxPerUser);
+            return history;
+        });
+    }
+
+    void remove(HeapTransactionStore.Entry entry) {
+        String key = entry.transaction.getUserId();
+        if (key == null) {
+            return;
+        }
+        histories.computeIfPresent(key, (userId, history) -> {
+            history.remove(entry);
+            return history.isEmpty() ? null : history;
+        });
+    }
+
+    /**
+     * Get a user's indexed transactions, oldest first
+     */
+    List<Transaction> all(String userId) {
+        return latest(userId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get a user's last n transactions, oldest first
+     */
+    List<Transaction> latest(String userId, int n) {
+        History history = histories.get(userId);
+        return history == null ? new ArrayList<>() : history.latest(n);
+    }
+
+    /**
+     * Get a user's transactions with from <= timestamp < to, oldest first.
+     * Null bounds are open.
+     */
+    List<Transaction> range(String userId, Instant from, Instant to) {
+        History history = histories.get(userId);
+        return history == null ? new ArrayList<>() : history.range(from, to);
+    }
+
+    /**
+     * Get up to limit of a user's entries with from <= timestamp < to that
+     * sort before the (timestamp, seq) cursor, newest first. Null bounds and
+     * a null cursor are open.
+     */
+    List<HeapTransactionStore.Entry> page(String userId, Instant from, Instant to,
+            Instant beforeTimestamp, long beforeSeq, int limit) {
+        History history = histories.get(userId);
+        return history == null ? new ArrayList<>() : history.page(from, to, beforeTimestamp, beforeSeq, limit);
+    }
+
+    int getUserCount() {
+        return histories.size();
+    }
+
+    void clear() {
+        histories.clear();
+    }
+
+    /**
+     * Ring of one user's entries sorted by timestamp, then sequence number.
+     */
+    private static final class History {
+        private HeapTransactionStore.Entry[] ring;
+        private int head;
+        private int size;
+
+        History(int capacity) {
+            this.ring = new HeapTransactionStore.Entry[capacity];
+        }
+
+        synchronized void add(HeapTransactionStore.Entry entry, int maxSize) {
+            if (size == maxSize) {
+                if (compare(entry, get(0)) < 0) {
+                    return; // older than everything we keep
+                }
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+            } else if (size == ring.length) {
+                grow(maxSize);
+            }
+            // Transactions almost always arrive in time order, so this
+            // usually shifts nothing
+            int i = size;
+            while (i > 0 && compare(get(i - 1), entry) > 0) {
+                set(i, get(i - 1));
+                i--;
+            }
+            set(i, entry);
+            size++;
+        }
+
+        synchronized void remove(HeapTransactionStore.Entry entry) {
+            int i = firstAtOrAfter(entry.transaction.getTimestamp(), entry.seq);
+            if (i == size || get(i) != entry) {
+                return; // already dropped from the index
+            }
+            // Evictions hit the oldest entry, which just advances the head;
+            // otherwise close the gap from whichever side is shorter
+            if (i < size / 2) {
+                for (int j = i; j > 0; j--) {
+                    set(j, get(j - 1));
+                }
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+            } else {
+                for (int j = i; j < size - 1; j++) {
+                    set(j, get(j + 1));
+                }
+                set(size - 1, null);
+            }
+            size--;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        synchronized List<Transaction> latest(int n) {
+            int count = Math.min(n, size);
+            List<Transaction> result = new ArrayList<>(count);
+            for (int i = size - count; i < size; i++) {
+                result.add(get(i).transaction);
+            }
+            return result;
+        }
+
+        synchronized List<Transaction> range(Instant from, Instant to) {
+            List<Transaction> result = new ArrayList<>();
+            int start = from == null ? 0 : firstAtOrAfter(from, Long.MIN_VALUE);
+            for (int i = start; i < size; i++) {
+                Transaction txn = get(i).transaction;
+                if (to != null && !txn.getTimestamp().isBefore(to)) {
+                    break;
+                }
+                result.add(txn);
+            }
+            return result;
+        }
+
+        synchronized List<HeapTransactionStore.Entry> page(Instant from, Instant to,
+                Instant beforeTimestamp, long beforeSeq, int limit) {
+            int end = to == null ? size : firstAtOrAfter(to, Long.MIN_VALUE);
+            if (beforeTimestamp != null) {
+                end = Math.min(end, firstAtOrAfter(beforeTimestamp, beforeSeq));
+            }
+            List<HeapTransactionStore.Entry> result = new ArrayList<>(Math.min(limit, end));
+            for (int i = end - 1; i >= 0 && result.size() < limit; i--) {
+                HeapTransactionStore.Entry entry = get(i);
+                if (from != null && entry.transaction.getTimestamp().isBefore(from)) {
+                    break;
+                }
+                result.add(entry);
+            }
+            return result;
+        }
+
+        /**
+         * Index of the first entry at or after (timestamp, seq).
+         */
+        private int firstAtOrAfter(Instant timestamp, long seq) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                HeapTransactionStore.Entry entry = get(mid);
+                int cmp = entry.transaction.getTimestamp().compareTo(timestamp);
+                if (cmp < 0 || (cmp == 0 && entry.seq < seq)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static int compare(HeapTransactionStore.Entry a, HeapTransactionStore.Entry b) {
+            int cmp = a.transaction.getTimestamp().compareTo(b.transaction.getTimestamp());
+            return cmp != 0 ? cmp : Long.compare(a.seq, b.seq);
+        }
+
+        private void grow(int maxSize) {
+            HeapTransactionStore.Entry[] grown = new HeapTransactionStore.Entry[Math.min(maxSize, ring.length * 2)];
+            for (int i = 0; i < size; i++) {
+                grown[i] = get(i);
+            }
+            ring = grown;
+            head = 0;
+        }
+
+        private HeapTransactionStore.Entry get(int i) {
+            return ring[(head + i) % ring.length];
+        }
+
+        private void set(int i, HeapTransactionStore.Entry entry) {
+            ring[(head + i) % ring.length] = entry;
+        }
+    }
+}
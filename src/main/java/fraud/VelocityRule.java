@@ -0,0 +1,51 @@
+package fraud;
+
+/**
+ * Flags users making more than the threshold number of transactions
+ * inside the tracker's sliding window.
+ */
+public class VelocityRule implements Rule {
+    private final VelocityTracker tracker;
+    private final int threshold;
+
+    public VelocityRule(VelocityTracker tracker) {
+        this(tracker, 5); // 5 transactions per minute
+    }
+
+    public VelocityRule(VelocityTracker tracker, int threshold) {
+        this.tracker = tracker;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String getName() {
+        return "velocity_rule";
+    }
+
+    @Override
+    public int getDefaultThreshold() {
+        return 5;
+    }
+
+    @Override
+    public double getRiskScore() {
+        return 25;
+    }
+
+    @Override
+    public Rule withThreshold(int threshold) {
+        return new VelocityRule(tracker, threshold);
+    }
+
+    @Override
+    public double evaluate(Transaction transaction) {
+        boolean exceeded = tracker.record(transaction.getUserId(), RuleEngine.epochMillis(transaction), threshold);
+        return exceeded ? threshold : NOT_TRIGGERED;
+    }
+
+    @Override
+    public String describe(double threshold) {
+        return "High transaction velocity: more than " + (int) threshold + " transactions in "
+                + tracker.getWindowMillis() / 1000 + "s";
+    }
+}
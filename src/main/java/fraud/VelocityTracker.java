@@ -0,0 +1,188 @@
+package fraud;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-user sliding-window velocity tracker.
+ * Each user owns a fixed-size ring of timestamps sized by the velocity
+ * threshold, so memory per user is constant and recording a transaction
+ * allocates nothing once the user's ring exists. Rings live in a striped LRU
+ * cache, so only the most recently active users are kept.
+ */
+public class VelocityTracker {
+    private static final long DEFAULT_WINDOW_MILLIS = 60_000L;
+    private static final int DEFAULT_MAX_USERS = 100_000;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long windowMillis;
+
+    public VelocityTracker() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    public VelocityTracker(long windowMillis) {
+        this(windowMillis, DEFAULT_MAX_USERS);
+    }
+
+    public VelocityTracker(long windowMillis, int maxUsers) {
+        this.windowMillis = windowMillis;
+        int perSegment = Math.max(1, maxUsers / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Record a transaction for a user and check the velocity threshold.
+     * Returns true when more than {@code threshold} transactions (including
+     * this one) fall inside the sliding window.
+     */
+    public boolean record(String userId, long epochMillis, int threshold) {
+        if (userId == null || threshold <= 0) {
+            return false;
+        }
+        return segmentFor(userId).window(userId, threshold).record(epochMillis, windowMillis);
+    }
+
+    /**
+     * Count the user's transactions inside the window ending at the given time.
+     * The count is capped at the ring size, i.e. the threshold.
+     */
+    public int count(String userId, long epochMillis) {
+        Window window = userId != null ? segmentFor(userId).get(userId) : null;
+        return window != null ? window.countSince(epochMillis - windowMillis) : 0;
+    }
+
+    /**
+     * Get the window length in milliseconds.
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Get number of tracked users.
+     */
+    public int getTrackedUserCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.size();
+        }
+        return count;
+    }
+
+    /**
+     * Forget all tracked users.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segmentFor(String userId) {
+        int h = userId.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * One stripe of the cache: an access-ordered map evicting the least
+     * recently active user once full. Only the lookup is locked; recording
+     * into a ring is lock-free.
+     */
+    private static final class Segment {
+        private final LinkedHashMap<String, Window> windows;
+
+        Segment(int capacity) {
+            this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        /**
+         * Get the user's ring, creating or resizing it for the threshold
+         */
+        synchronized Window window(String userId, int threshold) {
+            Window existing = windows.get(userId);
+            if (existing != null && existing.capacity() == threshold) {
+                return existing;
+            }
+            Window window = new Window(threshold, existing);
+            windows.put(userId, window);
+            return window;
+        }
+
+        synchronized Window get(String userId) {
+            return windows.get(userId);
+        }
+
+        synchronized int size() {
+            return windows.size();
+        }
+
+        synchronized void clear() {
+            windows.clear();
+        }
+    }
+
+    /**
+     * Lock-free ring of the most recent transaction timestamps for one user.
+     * The slot about to be overwritten holds the timestamp recorded
+     * {@code capacity} transactions ago; if that is still inside the window the
+     * threshold has been exceeded.
+     */
+    private static final class Window {
+        private final AtomicLongArray slots;
+        private final AtomicLong cursor = new AtomicLong();
+
+        Window(int capacity, Window previous) {
+            this.slots = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                slots.set(i, EMPTY);
+            }
+            if (previous != null) {
+                copyRecent(previous);
+            }
+        }
+
+        int capacity() {
+            return slots.length();
+        }
+
+        boolean record(long epochMillis, long windowMillis) {
+            int slot = (int) (cursor.getAndIncrement() % slots.length());
+            long previous = slots.getAndSet(slot, epochMillis);
+            return previous != EMPTY && epochMillis - previous < windowMillis;
+        }
+
+        int countSince(long fromMillis) {
+            int count = 0;
+            for (int i = 0; i < slots.length(); i++) {
+                long ts = slots.get(i);
+                if (ts != EMPTY && ts > fromMillis) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private void copyRecent(Window previous) {
+            long end = previous.cursor.get();
+            int n = (int) Math.min(Math.min(end, previous.capacity()), capacity());
+            for (long i = end - n; i < end; i++) {
+                long ts = previous.slots.get((int) (i % previous.capacity()));
+                if (ts != EMPTY) {
+                    slots.set((int) (cursor.getAndIncrement() % capacity()), ts);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package fraud;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented write-ahead log for transactions and alerts.
+ * <p>
+ * Segments are files named after the first log sequence number (LSN) they
+ * hold, pre-sized to a fixed length and written through a MappedByteBuffer.
+ * A record is
+ * {@code [int length][int crc][long lsn][byte type][payload]}, with the
+ * payload encoded by {@link LogCodec}; a zero length marks the end of a
+ * segment.
+ * <p>
+ * Appends only copy bytes into the mapping. A single flusher thread forces
+ * the dirty range to disk and wakes every writer whose record it covered, so
+ * concurrent writers share one fsync (group commit). In "group" mode
+ * {@link #sync(long)} waits for that; in "async" mode it returns at once and
+ * the flusher runs every group commit interval, so a crash can lose that
+ * much.
+ * <p>
+ * On open the log is scanned up to the first torn or corrupt record, the
+ * last segment is truncated there and appends start in a fresh segment.
+ * Segments already covered by a snapshot are removed with
+ * {@link #truncate(long)}.
+ */
+public class WriteAheadLog implements Closeable {
+    private static final int HEADER_BYTES = 17;
+    private static final String SUFFIX = ".wal";
+    private static final ThreadLocal<LogCodec.Buffer> BUFFERS = ThreadLocal.withInitial(LogCodec.Buffer::new);
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long groupCommitMillis;
+    private final boolean waitForSync;
+    private final Thread flusher;
+
+    // Guarded by this
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private long nextLsn;
+    private long forcedUpTo; // position in the current segment already forced
+    private volatile long appendedLsn;
+    private volatile boolean closed;
+
+    // Guarded by syncLock, which is never held while taking this
+    private final Object syncLock = new Object();
+    private long durableLsn;
+    private IOException failure;
+
+    /**
+     * Open the log in dir, configured from fraud.wal.* system properties
+     */
+    public WriteAheadLog(Path dir) throws IOException {
+        this(dir, Integer.getInteger("fraud.wal.segmentBytes", 64 * 1024 * 1024),
+                Long.getLong("fraud.wal.groupCommitMs", 2),
+                !"async".equals(System.getProperty("fraud.wal.sync", "group")));
+    }
+
+    public WriteAheadLog(Path dir, int segmentBytes, long groupCommitMillis, boolean waitForSync)
+            throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.groupCommitMillis = groupCommitMillis;
+        this.waitForSync = waitForSync;
+        Files.createDirectories(dir);
+
+        this.nextLsn = recover() + 1;
+        this.appendedLsn = nextLsn - 1;
+        this.durableLsn = nextLsn - 1;
+        openSegment();
+
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Log a new transaction, returning its LSN
+     */
+    public long logTransaction(Transaction txn) {
+        LogCodec.Buffer buf = BUFFERS.get().reset();
+        LogCodec.writeTransaction(buf, txn);
+        return append(LogCodec.PUT_TRANSACTION, buf);
+    }
+
+    /**
+     * Log the new state of an updated transaction
+     */
+    public long logTransactionUpdate(Transaction txn) {
+        LogCodec.Buffer buf = BUFFERS.get().reset();
+        LogCodec.writeTransaction(buf, txn);
+        return append(LogCodec.UPDATE_TRANSACTION, buf);
+    }
+
+    public long logTransactionDelete(String transactionId) {
+        LogCodec.Buffer buf = BUFFERS.get().reset();
+        buf.writeString(transactionId);
+        return append(LogCodec.DELETE_TRANSACTION, buf);
+    }
+
+    /**
+     * Log a new alert, returning its LSN
+     */
+    public long logAlert(FraudAlert alert) {
+        LogCodec.Buffer buf = BUFFERS.get().reset();
+        LogCodec.writeAlert(buf, alert);
+        return append(LogCodec.PUT_ALERT, buf);
+    }
+
+    /**
+     * Log an alert's new status and resolution
+     */
+    public long logAlertStatus(FraudAlert alert) {
+        LogCodec.Buffer buf = BUFFERS.get().reset();
+        LogCodec.writeAlertStatus(buf, alert);
+        return append(LogCodec.UPDATE_ALERT_STATUS, buf);
+    }
+
+    public long logAlertDelete(String alertId) {
+        LogCodec.Buffer buf = BUFFERS.get().reset();
+        buf.writeString(alertId);
+        return append(LogCodec.DELETE_ALERT, buf);
+    }
+
+    /**
+     * Log the rule switches and thresholds after a change
+     */
+    public long logRuleConfig(RuleConfig config) {
+        LogCodec.Buffer buf = BUFFERS.get().reset();
+        LogCodec.writeRuleConfig(buf, config);
+        return append(LogCodec.RULE_CONFIG, buf);
+    }
+
+    private synchronized long append(byte type, LogCodec.Buffer payload) {
+        int length = payload.size();
+        if (HEADER_BYTES + length + 4 > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit in a log segment");
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        try {
+            // Keep room for the zero length that ends the segment
+            if (position + HEADER_BYTES + length + 4 > segmentBytes) {
+                segment.force();
+                channel.close();
+                openSegment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll write-ahead log segment", e);
+        }
+
+        long lsn = nextLsn++;
+        CRC32C crc = new CRC32C();
+        ByteBuffer header = ByteBuffer.allocate(9).putLong(lsn).put(type);
+        crc.update(header.array());
+        crc.update(payload.bytes, 0, length);
+
+        segment.position(position);
+        segment.putInt(length).putInt((int) crc.getValue()).put(header.array()).put(payload.bytes, 0, length);
+        position = segment.position();
+        appendedLsn = lsn;
+        if (waitForSync) {
+            synchronized (syncLock) {
+                syncLock.notify();
+            }
+        }
+        return lsn;
+    }
+
+    /**
+     * Wait until the record with this LSN is on disk. Returns at once in
+     * async mode.
+     */
+    public void sync(long lsn) {
+        if (!waitForSync) {
+            return;
+        }
+        synchronized (syncLock) {
+            boolean interrupted = false;
+            while (durableLsn < lsn && failure == null && !closed) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log flush failed", failure);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (syncLock) {
+                try {
+                    if (waitForSync) {
+                        while (!closed && durableLsn >= appendedLsn) {
+                            syncLock.wait();
+                        }
+                    } else if (!closed) {
+                        syncLock.wait(Math.max(1, groupCommitMillis));
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            if (waitForSync && groupCommitMillis > 0) {
+                try {
+                    Thread.sleep(groupCommitMillis); // let more writers join this batch
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Force everything appended so far and publish it as durable
+     */
+    private void flush() {
+        MappedByteBuffer target;
+        int from;
+        int to;
+        long lsn;
+        synchronized (this) {
+            target = segment;
+            from = (int) forcedUpTo;
+            to = position;
+            lsn = nextLsn - 1;
+            forcedUpTo = position;
+        }
+        try {
+            if (to > from) {
+                target.force(from, to - from);
+            }
+        } catch (UncheckedIOException e) {
+            synchronized (syncLock) {
+                failure = e.getCause();
+                syncLock.notifyAll();
+            }
+            return;
+        }
+        synchronized (syncLock) {
+            if (lsn > durableLsn) {
+                durableLsn = lsn;
+            }
+            syncLock.notifyAll();
+        }
+    }
+
+    /**
+     * Replay every logged record into the storages, oldest first. Returns
+     * the number of records applied.
+     */
+    public long replay(TransactionStorage transactions, AlertStorage alerts) throws IOException {
+        return replay(transactions, alerts, null, 0);
+    }
+
+    /**
+     * Replay the records after the given LSN, e.g. the tail after a
+     * snapshot. Returns the number of records applied.
+     */
+    public long replay(TransactionStorage transactions, AlertStorage alerts, RuleEngine ruleEngine,
+            long afterLsn) throws IOException {
+        long applied = 0;
+        List<Path> files = segments();
+        for (int i = 0; i < files.size(); i++) {
+            if (i + 1 < files.size() && firstLsn(files.get(i + 1)) <= afterLsn + 1) {
+                continue; // whole segment is covered
+            }
+            try (FileChannel in = FileChannel.open(files.get(i), StandardOpenOption.READ)) {
+                ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                ByteBuffer record;
+                while ((record = nextRecord(data, -1)) != null) {
+                    if (record.getLong(0) > afterLsn) {
+                        LogCodec.apply(record.get(8), record.position(9), transactions, alerts, ruleEngine);
+                        applied++;
+                    }
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Delete the segments holding only records up to the given LSN. The
+     * current segment is never deleted.
+     */
+    public int truncate(long upToLsn) throws IOException {
+        int deleted = 0;
+        List<Path> files = segments();
+        for (int i = 0; i + 1 < files.size(); i++) {
+            if (firstLsn(files.get(i + 1)) > upToLsn + 1) {
+                break;
+            }
+            Files.delete(files.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Make sure new records get LSNs above the given one, e.g. when the log
+     * was lost but a snapshot at that LSN survived
+     */
+    public synchronized void skipTo(long lsn) throws IOException {
+        if (nextLsn > lsn) {
+            return;
+        }
+        segment.force();
+        channel.truncate(position);
+        channel.close();
+        nextLsn = lsn + 1;
+        appendedLsn = lsn;
+        openSegment();
+        synchronized (syncLock) {
+            durableLsn = Math.max(durableLsn, lsn);
+        }
+    }
+
+    /**
+     * Read the record at the buffer's position and advance past it. Returns
+     * [lsn][type][payload] as a slice, or null at the end of the segment or
+     * at a torn or corrupt record.
+     */
+    private static ByteBuffer nextRecord(ByteBuffer data, long expectedLsn) {
+        if (data.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int start = data.position();
+        int length = data.getInt(start);
+        if (length <= 0 || length > data.remaining() - HEADER_BYTES) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        ByteBuffer body = data.slice(start + 8, 9 + length);
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != data.getInt(start + 4)) {
+            return null;
+        }
+        if (expectedLsn >= 0 && body.getLong(0) != expectedLsn) {
+            return null;
+        }
+        data.position(start + HEADER_BYTES + length);
+        return body;
+    }
+
+    /**
+     * Scan all segments, cut the log after the last good record and return
+     * its LSN (0 for an empty log)
+     */
+    private long recover() throws IOException {
+        long lastLsn = 0;
+        List<Path> files = segments();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            long expected = firstLsn(file);
+            if (lastLsn > 0 && expected != lastLsn + 1) {
+                // Gap after a corrupt segment: later records cannot be applied in order
+                System.out.println("Write-ahead log: dropping " + file.getFileName() + " after a gap");
+                Files.delete(file);
+                continue;
+            }
+            int end;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                while (nextRecord(data, expected) != null) {
+                    lastLsn = expected++;
+                }
+                end = data.position();
+                if (end < ch.size()) {
+                    ch.truncate(end);
+                }
+            }
+            if (end == 0) {
+                lastLsn = Math.max(lastLsn, expected - 1); // keep numbering after a truncated log
+                Files.delete(file);
+            }
+        }
+        return lastLsn;
+    }
+
+    private void openSegment() throws IOException {
+        Path file = dir.resolve(String.format("%020d", nextLsn) + SUFFIX);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        position = 0;
+        forcedUpTo = 0;
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null); // zero-padded names sort by LSN
+        return files;
+    }
+
+    private static long firstLsn(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Get the LSN of the newest record appended
+     */
+    public long getAppendedLsn() {
+        return appendedLsn;
+    }
+
+    /**
+     * Get the LSN of the newest record on disk
+     */
+    public long getDurableLsn() {
+        synchronized (syncLock) {
+            return durableLsn;
+        }
+    }
+
+    /**
+     * Flush outstanding records and stop the flusher
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        flush();
+        synchronized (this) {
+            closed = true;
+            segment.force();
+            channel.truncate(position); // drop the unused tail of the segment
+            channel.close();
+        }
+        synchronized (syncLock) {
+            durableLsn = appendedLsn;
+            syncLock.notifyAll();
+        }
+        flusher.interrupt();
+    }
+}
@@ -0,0 +1,127 @@
+package fraud;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for request admission control.
+ */
+class AdmissionFilterTest {
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private AdmissionFilter admission;
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        admission = new AdmissionFilter(1, 0);
+        server.createContext("/slow", exchange -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        }).getFilters().add(admission);
+    }
+
+    private void start(ExecutorService requestExecutor) {
+        executor = requestExecutor;
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Integer> getAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return get();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private int get() throws Exception {
+        URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/slow");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    void testOverLimit_RejectedWith503() throws Exception {
+        // Arrange: occupy the only permit
+        start(FraudDetectionApplication.createExecutor("platform", admission));
+        CompletableFuture<Integer> first = getAsync();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // Act
+        int status = get();
+        release.countDown();
+
+        // Assert
+        assertEquals(503, status);
+        assertEquals(204, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, admission.getRejectedCount());
+    }
+
+    @Test
+    void testPoolOverflow_ShedWith503() throws Exception {
+        // Arrange: one worker busy and the one queue slot taken
+        ThreadPoolExecutor pool = FraudDetectionApplication.newRequestPool(1, 1, admission);
+        start(pool);
+        CompletableFuture<Integer> first = getAsync();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Integer> queued = getAsync();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getQueue().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Act
+        int status = get();
+        release.countDown();
+
+        // Assert
+        assertEquals(503, status);
+        assertEquals(204, first.get(5, TimeUnit.SECONDS));
+        assertEquals(204, queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCreateExecutor_UnknownModeRejected() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> FraudDetectionApplication.createExecutor("bogus", admission));
+    }
+}
@@ -0,0 +1,102 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AlertPipeline.
+ */
+class AlertPipelineTest {
+
+    private static Transaction txn(String id) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId(id);
+        txn.setUserId("user-1");
+        txn.setAmount(9000);
+        txn.setTimestamp(Instant.parse("2024-01-01T10:00:00Z"));
+        return txn;
+    }
+
+    private static FraudDecision decision(String id) {
+        return new FraudDecision(id, true, 85, List.of("big"), List.of("velocity_rule"));
+    }
+
+    @Test
+    void testSubmit_StoresAlertsFromManyProducers() throws Exception {
+        // Arrange
+        AlertStorage storage = new AlertStorage(Duration.ZERO);
+        AlertPipeline pipeline = new AlertPipeline(storage, null, 64, 1000);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            int base = p * 500;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    pipeline.submit(txn("T" + (base + i)), decision("T" + (base + i)));
+                }
+            });
+        }
+
+        // Act
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        boolean flushed = pipeline.flush(5, TimeUnit.SECONDS);
+        pipeline.close();
+
+        // Assert
+        assertTrue(flushed);
+        assertEquals(2000, storage.getAlertCount());
+        assertEquals(2000L, pipeline.getStats().get("stored"));
+        assertEquals(0L, pipeline.getStats().get("dropped"));
+        assertEquals(0, pipeline.getDepth());
+        FraudAlert alert = storage.getAllAlerts().get(0);
+        assertEquals("VELOCITY", alert.getAlertType());
+        assertEquals("CRITICAL", alert.getSeverity());
+    }
+
+    @Test
+    void testSubmit_DropsWhenRingStaysFull() throws Exception {
+        // Arrange: the worker blocks on its first batch
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AlertStorage slow = new AlertStorage(Duration.ZERO) {
+            @Override
+            public void addAlerts(List<FraudAlert> batch) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.addAlerts(batch);
+            }
+        };
+        AlertPipeline pipeline = new AlertPipeline(slow, null, 2, 10);
+        pipeline.submit(txn("T0"), decision("T0"));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // Act
+        boolean first = pipeline.submit(txn("T1"), decision("T1"));
+        boolean second = pipeline.submit(txn("T2"), decision("T2"));
+        boolean third = pipeline.submit(txn("T3"), decision("T3"));
+        release.countDown();
+        pipeline.close();
+
+        // Assert
+        assertTrue(first && second);
+        assertFalse(third);
+        assertEquals(1L, pipeline.getStats().get("dropped"));
+        assertEquals(1L, pipeline.getStats().get("backpressured"));
+        assertEquals(3, slow.getAlertCount());
+    }
+}
@@ -0,0 +1,157 @@
+package fraud;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AlertStorage.
+ */
+class AlertStorageTest {
+
+    private AlertStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new AlertStorage();
+    }
+
+    private static FraudAlert alert(String id, String userId, String status) {
+        FraudAlert alert = new FraudAlert();
+        alert.setAlertId(id);
+        alert.setUserId(userId);
+        alert.setStatus(status);
+        alert.setRiskScore(70);
+        alert.setTimestamp(Instant.parse("2024-01-01T00:00:00Z"));
+        return alert;
+    }
+
+    private static List<String> ids(List<FraudAlert> alerts) {
+        return alerts.stream().map(FraudAlert::getAlertId).toList();
+    }
+
+    @Test
+    void testFindAlerts_FilteredPagesNewestFirst() {
+        // Arrange
+        for (int i = 0; i < 6; i++) {
+            storage.addAlert(alert("A" + i, "user-" + (i % 2), i < 4 ? "NEW" : "RESOLVED"));
+        }
+
+        // Act
+        Page<FraudAlert> first = storage.findAlerts("NEW", null, null, null, null, 2);
+        Page<FraudAlert> second = storage.findAlerts("NEW", null, null, null, first.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(List.of("A3", "A2"), ids(first.getItems()));
+        assertEquals(List.of("A1", "A0"), ids(second.getItems()));
+        assertNull(second.getNextCursor());
+        assertEquals(List.of("A5", "A3", "A1"), ids(storage.findAlerts(null, "user-1", null, null, null, 10).getItems()));
+    }
+
+    @Test
+    void testFindAlerts_TimeRangePagesByTimestamp() {
+        // Arrange: inserted out of time order
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        int[] minutes = { 5, 1, 4, 2, 3, 9 };
+        for (int i = 0; i < minutes.length; i++) {
+            FraudAlert alert = alert("A" + minutes[i], "user-1", "NEW");
+            alert.setTimestamp(base.plusSeconds(minutes[i] * 60L));
+            storage.addAlert(alert);
+        }
+
+        // Act: minute 1 (inclusive) to 5 (exclusive)
+        Page<FraudAlert> first = storage.findAlerts(null, null, base.plusSeconds(60), base.plusSeconds(300), null, 3);
+        Page<FraudAlert> second = storage.findAlerts(null, null, base.plusSeconds(60), base.plusSeconds(300),
+                first.getNextCursor(), 3);
+
+        // Assert: latest timestamp first
+        assertEquals(List.of("A4", "A3", "A2"), ids(first.getItems()));
+        assertEquals(List.of("A1"), ids(second.getItems()));
+        assertNull(second.getNextCursor());
+        assertEquals(List.of("A9", "A5"),
+                ids(storage.findAlerts(null, null, base.plusSeconds(300), null, null, 10).getItems()));
+    }
+
+    @Test
+    void testDeleteAlert_RemovedFromPages() {
+        // Arrange
+        storage.addAlert(alert("A1", "user-1", "NEW"));
+        storage.addAlert(alert("A2", "user-1", "NEW"));
+
+        // Act
+        boolean deleted = storage.deleteAlert("A1");
+
+        // Assert
+        assertTrue(deleted);
+        assertNull(storage.getAlert("A1"));
+        assertEquals(1, storage.getAlertCount());
+        assertEquals(List.of("A2"), ids(storage.findAlerts(null, null, null, null, null, 10).getItems()));
+    }
+
+    @Test
+    void testRaiseAlerts_CoalescesPerUserAndRulesWithinWindow() {
+        // Arrange
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        List<FraudAlert> burst = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            FraudAlert alert = alert(null, "user-1", null);
+            alert.setTriggeredRules(i == 2 ? List.of("velocity_rule", "amount_rule") : List.of("amount_rule",
+                    "velocity_rule"));
+            alert.setRiskScore(i == 3 ? 90 : 50);
+            alert.setTimestamp(start.plusSeconds(i * 10));
+            burst.add(alert);
+        }
+        FraudAlert otherRule = alert(null, "user-1", null);
+        otherRule.setTriggeredRules(List.of("location_rule"));
+        FraudAlert afterWindow = alert(null, "user-1", null);
+        afterWindow.setTriggeredRules(List.of("amount_rule", "velocity_rule"));
+        afterWindow.setTimestamp(start.plusSeconds(300));
+
+        // Act
+        List<FraudAlert> raised = storage.raiseAlerts(burst);
+        storage.raiseAlerts(List.of(otherRule, afterWindow));
+
+        // Assert
+        assertEquals(1, raised.size());
+        FraudAlert aggregate = raised.get(0);
+        assertEquals(5, aggregate.getCount());
+        assertEquals(start, aggregate.getFirstSeen());
+        assertEquals(start.plusSeconds(40), aggregate.getLastSeen());
+        assertEquals(90, aggregate.getRiskScore());
+        assertEquals("CRITICAL", aggregate.getSeverity());
+        assertEquals(3, storage.getAlertCount());
+        assertEquals(1, storage.getAlert(afterWindow.getAlertId()).getCount());
+    }
+
+    @Test
+    void testIndexes_FollowStatusChangesAndExpiry() {
+        // Arrange
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        for (int i = 0; i < 6; i++) {
+            FraudAlert alert = alert("A" + i, "user-" + (i % 3), "NEW");
+            alert.setRiskScore(i < 2 ? 90 : 50);
+            alert.setTriggeredRules(List.of(i % 2 == 0 ? "amount_rule" : "velocity_rule"));
+            alert.setTimestamp(start.plusSeconds(i * 60));
+            storage.addAlert(alert);
+        }
+
+        // Act
+        storage.resolveAlert("A4", "confirmed");
+        int expired = storage.expire(start.plusSeconds(90), 3);
+
+        // Assert
+        assertEquals(3, expired);
+        assertEquals(List.of("A3", "A5"), ids(storage.getAlertsByStatus("NEW")));
+        assertEquals(List.of("A4"), ids(storage.findAlerts("RESOLVED", null, null, null, null, 10).getItems()));
+        assertEquals(List.of("A5", "A3"),
+                ids(storage.findAlerts(null, "MEDIUM", "VELOCITY", null, null, null, null, 10).getItems()));
+        assertEquals(List.of("A5"), ids(storage.findAlerts("NEW", null, null, "user-2", null, null, null, 10)
+                .getItems()));
+        assertTrue(storage.findAlerts(null, "CRITICAL", null, null, null, null, null, 10).getItems().isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package fraud;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for batch scoring.
+ */
+class BatchScorerTest {
+
+    private RuleEngine ruleEngine;
+    private TransactionStorage transactionStorage;
+    private AlertStorage alertStorage;
+    private BatchScorer batchScorer;
+
+    @BeforeEach
+    void setUp() {
+        ruleEngine = new RuleEngine();
+        ruleEngine.setRuleEnabled("new_account_rule", false);
+        transactionStorage = new TransactionStorage();
+        alertStorage = new AlertStorage();
+        batchScorer = new BatchScorer(ruleEngine, transactionStorage, alertStorage, 4);
+    }
+
+    private static Transaction txn(String id, String userId, double amount, Instant timestamp) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId(id);
+        txn.setUserId(userId);
+        txn.setAmount(amount);
+        txn.setTimestamp(timestamp);
+        return txn;
+    }
+
+    @Test
+    void testProcess_DecisionsInInputOrder() {
+        // Arrange
+        Instant now = Instant.now();
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            batch.add(txn("TXN-" + i, "user-" + (i % 37), 10 + i, now.plusMillis(i * 100_000L)));
+        }
+
+        // Act
+        List<FraudDecision> decisions = batchScorer.process(batch);
+
+        // Assert
+        assertEquals(500, decisions.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals("TXN-" + i, decisions.get(i).getTransactionId());
+        }
+        assertEquals(500, transactionStorage.getTransactionCount());
+    }
+
+    @Test
+    void testProcess_SameUserScoredInOrder() {
+        // Arrange: one user, six transactions inside the velocity window
+        Instant now = Instant.now();
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String userId = i < 6 ? "user-fast" : "user-" + i;
+            batch.add(txn("TXN-" + i, userId, 2000, now.plusMillis(i)));
+        }
+
+        // Act
+        List<FraudDecision> decisions = batchScorer.process(batch);
+
+        // Assert: only the sixth transaction trips the velocity rule
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i == 5, decisions.get(i).getTriggeredRules().contains("velocity_rule"), "item " + i);
+        }
+        assertEquals(1, alertStorage.getAlertCount());
+        assertEquals("TXN-5", alertStorage.getAllAlerts().get(0).getTransactionId());
+    }
+}
@@ -0,0 +1,116 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the live event fan-out.
+ */
+class EventBroadcasterTest {
+
+    @Test
+    void testSubscribe_ReplaysEventsAfterLastEventId() throws Exception {
+        // Arrange
+        EventBroadcaster events = new EventBroadcaster(8, 8);
+        for (int i = 1; i <= 5; i++) {
+            events.publish("decision", "d" + i);
+        }
+
+        // Act
+        EventBroadcaster.Subscriber subscriber = events.subscribe(3);
+        events.publish("alert", "a6");
+
+        // Assert
+        assertEquals(4, subscriber.next(0, TimeUnit.SECONDS).getId());
+        assertEquals(5, subscriber.next(0, TimeUnit.SECONDS).getId());
+        EventBroadcaster.Event live = subscriber.next(0, TimeUnit.SECONDS);
+        assertEquals(6, live.getId());
+        assertEquals("id: 6\nevent: alert\ndata: \"a6\"\n\n", new String(live.toFrame(), "UTF-8"));
+        assertNull(subscriber.next(0, TimeUnit.SECONDS));
+        assertEquals(0, subscriber.takeMissed());
+    }
+
+    @Test
+    void testSubscribe_CountsEventsOlderThanReplayRing() throws Exception {
+        // Arrange
+        EventBroadcaster events = new EventBroadcaster(4, 8);
+        for (int i = 1; i <= 10; i++) {
+            events.publish("decision", i);
+        }
+
+        // Act
+        EventBroadcaster.Subscriber subscriber = events.subscribe(2);
+
+        // Assert: 3-6 fell out of the ring, 7-10 are replayed
+        assertEquals(4, subscriber.takeMissed());
+        assertEquals(7, subscriber.next(0, TimeUnit.SECONDS).getId());
+    }
+
+    @Test
+    void testSlowSubscriber_DropsOldestAndCountsMissed() throws Exception {
+        // Arrange
+        EventBroadcaster events = new EventBroadcaster(16, 3);
+        EventBroadcaster.Subscriber subscriber = events.subscribe(0);
+
+        // Act
+        for (int i = 1; i <= 5; i++) {
+            events.publish("decision", i);
+        }
+
+        // Assert
+        assertEquals(2, subscriber.takeMissed());
+        assertEquals(3, subscriber.next(0, TimeUnit.SECONDS).getId());
+        assertEquals(4, subscriber.next(0, TimeUnit.SECONDS).getId());
+        assertEquals(5, subscriber.next(0, TimeUnit.SECONDS).getId());
+        events.unsubscribe(subscriber);
+        assertEquals(0, events.getSubscriberCount());
+    }
+
+    @Test
+    void testSubscribe_NewSubscriberGetsOnlyLaterEvents() throws Exception {
+        // Arrange: published while nobody listens, so never fanned out
+        EventBroadcaster events = new EventBroadcaster(16, 16);
+        events.publish("decision", "early-1");
+        events.publish("decision", "early-2");
+
+        // Act
+        EventBroadcaster.Subscriber subscriber = events.subscribe(0);
+        events.publish("decision", "late");
+
+        // Assert
+        assertEquals(3, subscriber.next(0, TimeUnit.SECONDS).getId());
+        assertNull(subscriber.next(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testPublish_ConcurrentPublishersDeliverInIdOrder() throws Exception {
+        // Arrange
+        EventBroadcaster events = new EventBroadcaster(4096, 4096);
+        EventBroadcaster.Subscriber subscriber = events.subscribe(0);
+        Thread[] publishers = new Thread[4];
+        for (int t = 0; t < publishers.length; t++) {
+            publishers[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    events.publish("decision", i);
+                }
+            });
+        }
+
+        // Act
+        for (Thread publisher : publishers) {
+            publisher.start();
+        }
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+
+        // Assert: nothing was skipped as out of order
+        for (long id = 1; id <= 2000; id++) {
+            assertEquals(id, subscriber.next(0, TimeUnit.SECONDS).getId());
+        }
+        assertEquals(0, subscriber.takeMissed());
+    }
+}
@@ -0,0 +1,106 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the GeoVelocityDetector.
+ */
+class GeoVelocityDetectorTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void testFirstTransaction_NoSpeed() {
+        // Arrange
+        GeoVelocityDetector detector = new GeoVelocityDetector();
+
+        // Act
+        double speed = detector.observe("user-1", new Location("New York", "US"), 0L, 500);
+
+        // Assert
+        assertEquals(0, speed);
+        assertEquals(1, detector.getTrackedUserCount());
+    }
+
+    @Test
+    void testNewYorkToLondonInTenMinutes_Impossible() {
+        // Arrange
+        GeoVelocityDetector detector = new GeoVelocityDetector();
+        detector.observe("user-1", new Location("New York", "US"), 0L, 500);
+
+        // Act
+        double speed = detector.observe("user-1", new Location("London", "GB"), 600_000L, 500);
+
+        // Assert
+        assertTrue(detector.isImpossible(speed));
+    }
+
+    @Test
+    void testNewYorkToLondonInTenHours_Possible() {
+        // Arrange
+        GeoVelocityDetector detector = new GeoVelocityDetector();
+        detector.observe("user-1", new Location("New York", "US"), 0L, 500);
+
+        // Act
+        double speed = detector.observe("user-1", new Location("London", "GB"), 10 * HOUR, 500);
+
+        // Assert
+        assertTrue(speed > 0);
+        assertFalse(detector.isImpossible(speed));
+    }
+
+    @Test
+    void testShortHopBelowMinimumDistance_Ignored() {
+        // Arrange
+        GeoVelocityDetector detector = new GeoVelocityDetector();
+        detector.observe("user-1", new Location("New York", "US"), 0L, 500);
+
+        // Act
+        double speed = detector.observe("user-1", new Location("Philadelphia", "US"), 60_000L, 500);
+
+        // Assert
+        assertEquals(0, speed);
+    }
+
+    @Test
+    void testUnknownCity_Ignored() {
+        // Arrange
+        GeoVelocityDetector detector = new GeoVelocityDetector();
+
+        // Act
+        double speed = detector.observe("user-1", new Location("Atlantis", "XX"), 0L, 500);
+
+        // Assert
+        assertEquals(0, speed);
+        assertEquals(0, detector.getTrackedUserCount());
+    }
+
+    @Test
+    void testCityLookupIgnoresCase() {
+        // Arrange
+        Gazetteer gazetteer = new Gazetteer();
+
+        // Act
+        double[] coordinates = gazetteer.resolve(new Location(" new york ", "us"));
+
+        // Assert
+        assertNotNull(coordinates);
+        assertEquals(40.7128, coordinates[0], 0.001);
+    }
+
+    @Test
+    void testLeastRecentlySeenUsersEvicted() {
+        // Arrange
+        GeoVelocityDetector detector = new GeoVelocityDetector(new Gazetteer(), 16, 1000.0);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            detector.observe("user-" + i, new Location("Miami", "US"), i, 500);
+        }
+
+        // Assert
+        assertTrue(detector.getTrackedUserCount() <= 16);
+    }
+}
@@ -0,0 +1,73 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IdGenerator.
+ */
+class IdGeneratorTest {
+
+    @Test
+    void testNextId_UniqueAndIncreasingAcrossThreads() throws Exception {
+        // Arrange
+        IdGenerator generator = new IdGenerator(7);
+        ConcurrentLinkedQueue<Long> ids = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                long previous = -1;
+                for (int i = 0; i < 50_000; i++) {
+                    long id = generator.nextId();
+                    assertTrue(id > previous);
+                    previous = id;
+                    ids.add(id);
+                }
+            }));
+        }
+
+        // Act
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        Set<Long> unique = new HashSet<>(ids);
+        assertEquals(200_000, unique.size());
+        long sample = ids.peek();
+        assertEquals(7, (sample >>> 12) & IdGenerator.MAX_NODE);
+        assertTrue(Math.abs(IdGenerator.timestampOf(sample).toEpochMilli() - System.currentTimeMillis()) < 60_000);
+    }
+
+    @Test
+    void testEncode_FixedWidthAndSortable() {
+        // Arrange
+        IdGenerator generator = new IdGenerator(1);
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        // Act
+        String a = IdGenerator.encode(first);
+        String b = IdGenerator.encode(second);
+
+        // Assert
+        assertEquals(13, a.length());
+        assertTrue(a.compareTo(b) < 0);
+        assertEquals(first, IdGenerator.decode(a));
+        assertEquals("0000000000000", IdGenerator.encode(0));
+        assertEquals(Instant.parse("2024-01-01T00:00:00Z"), IdGenerator.timestampOf(0));
+        assertTrue(generator.next("TXN-").startsWith("TXN-"));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.decode("TXN-0001"));
+    }
+}
@@ -0,0 +1,116 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IdempotencyCache.
+ */
+class IdempotencyCacheTest {
+
+    @Test
+    void testClaim_RetryGetsOriginalOutcome() throws Exception {
+        // Arrange
+        IdempotencyCache<String> cache = new IdempotencyCache<>(100, 60, TimeUnit.SECONDS);
+        assertNull(cache.claim("T1", 1, TimeUnit.SECONDS));
+
+        // Act: a retry arrives while the first attempt is in flight
+        CompletableFuture<String> retry = CompletableFuture.supplyAsync(() -> cache.claim("T1", 5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        cache.finish("T1", "decision-1");
+
+        // Assert
+        assertEquals("decision-1", retry.get(5, TimeUnit.SECONDS));
+        assertEquals("decision-1", cache.claim("T1", 1, TimeUnit.SECONDS));
+        assertEquals(2, cache.getReplayCount());
+    }
+
+    @Test
+    void testAbandon_NextAttemptOwnsKey() {
+        // Arrange
+        IdempotencyCache<String> cache = new IdempotencyCache<>(100, 60, TimeUnit.SECONDS);
+        cache.claim("T1", 1, TimeUnit.SECONDS);
+
+        // Act
+        cache.abandon("T1");
+
+        // Assert
+        assertNull(cache.claim("T1", 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClaim_EvictsOldestFinishedBeyondBound() {
+        // Arrange
+        IdempotencyCache<String> cache = new IdempotencyCache<>(2, 60, TimeUnit.SECONDS);
+        for (String key : new String[] { "T1", "T2", "T3" }) {
+            cache.claim(key, 1, TimeUnit.SECONDS);
+            cache.finish(key, "done");
+        }
+
+        // Act
+        String first = cache.claim("T1", 1, TimeUnit.SECONDS);
+
+        // Assert
+        assertNull(first);
+        assertEquals("done", cache.claim("T3", 1, TimeUnit.SECONDS));
+        assertTrue(cache.size() <= 3);
+    }
+
+    @Test
+    void testClaim_InFlightKeyDoesNotBlockEviction() {
+        // Arrange: the oldest key is never finished
+        IdempotencyCache<String> cache = new IdempotencyCache<>(2, 60, TimeUnit.SECONDS);
+        cache.claim("STUCK", 1, TimeUnit.SECONDS);
+        for (int i = 0; i < 10; i++) {
+            cache.claim("T" + i, 1, TimeUnit.SECONDS);
+            cache.finish("T" + i, "done");
+        }
+
+        // Act
+        cache.claim("T10", 1, TimeUnit.SECONDS);
+
+        // Assert: finished keys behind it were still evicted
+        assertTrue(cache.size() <= 3);
+        assertNull(cache.claim("T0", 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClaimAll_HeldKeysShareOneDeadline() {
+        // Arrange: another owner holds two keys and never finishes them
+        IdempotencyCache<String> cache = new IdempotencyCache<>(100, 60, TimeUnit.SECONDS);
+        cache.claim("A", 1, TimeUnit.SECONDS);
+        cache.claim("B", 1, TimeUnit.SECONDS);
+
+        // Act
+        long start = System.nanoTime();
+        assertThrows(IdempotencyCache.InFlightException.class,
+                () -> cache.claimAll(List.of("A", "B", "C"), 200, TimeUnit.MILLISECONDS));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Assert: one wait, not one per key, and the free key was released
+        assertTrue(waitedMillis < 390, "waited " + waitedMillis + " ms");
+        assertNull(cache.claim("C", 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClaimAll_ReturnsOutcomesOfFinishedKeys() {
+        // Arrange
+        IdempotencyCache<String> cache = new IdempotencyCache<>(100, 60, TimeUnit.SECONDS);
+        cache.claim("A", 1, TimeUnit.SECONDS);
+        cache.finish("A", "decision-A");
+
+        // Act
+        Map<String, String> outcomes = cache.claimAll(List.of("A", "B"), 1, TimeUnit.SECONDS);
+
+        // Assert: A is replayed, B is now owned by the caller
+        assertEquals(Map.of("A", "decision-A"), outcomes);
+        assertEquals("decision-A", cache.claim("A", 1, TimeUnit.SECONDS));
+        assertThrows(IdempotencyCache.InFlightException.class, () -> cache.claim("B", 50, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,140 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JSON codec.
+ */
+class JsonCodecTest {
+
+    @Test
+    void testTransactionRoundTrip() {
+        // Arrange
+        Transaction txn = new Transaction();
+        txn.setTransactionId("TXN-0001");
+        txn.setUserId("user-001");
+        txn.setAmount(1234.56);
+        txn.setCurrency("USD");
+        txn.setMerchantId("Amazon");
+        txn.setTimestamp(Instant.parse("2024-01-01T10:15:30Z"));
+
+        // Act
+        String json = JsonHelper.toJson(txn);
+        Transaction parsed = JsonHelper.fromJson(json, Transaction.class);
+
+        // Assert
+        assertEquals("TXN-0001", parsed.getTransactionId());
+        assertEquals("user-001", parsed.getUserId());
+        assertEquals(1234.56, parsed.getAmount());
+        assertEquals("Amazon", parsed.getMerchantId());
+        assertEquals(Instant.parse("2024-01-01T10:15:30Z"), parsed.getTimestamp());
+    }
+
+    @Test
+    void testInternedFields_ShareOneInstance() {
+        // Arrange
+        String json = "{\"userId\":\"user-001\",\"merchantId\":\"Amazon\",\"transactionId\":\"T1\","
+                + "\"location\":{\"city\":\"Paris\",\"country\":\"FR\"}}";
+
+        // Act
+        Transaction first = JsonHelper.fromJson(json, Transaction.class);
+        Transaction second = JsonHelper.fromJson(json, Transaction.class);
+
+        // Assert
+        assertSame(first.getUserId(), second.getUserId());
+        assertSame(first.getMerchantId(), second.getMerchantId());
+        assertSame(first.getLocation().getCity(), second.getLocation().getCity());
+        assertSame(first.getLocation().getCountry(), second.getLocation().getCountry());
+        assertNotSame(first.getTransactionId(), second.getTransactionId());
+    }
+
+    @Test
+    void testEscapedQuotesAndBackslashes() {
+        // Arrange
+        String json = "{\"userId\":\"a\\\\\",\"merchantId\":\"say \\\"hi\\\", ok\",\"amount\":5}";
+
+        // Act
+        Transaction parsed = JsonHelper.fromJson(json, Transaction.class);
+
+        // Assert
+        assertEquals("a\\", parsed.getUserId());
+        assertEquals("say \"hi\", ok", parsed.getMerchantId());
+        assertEquals(5.0, parsed.getAmount());
+    }
+
+    @Test
+    void testWriteEscapesControlAndUnicodeCharacters() {
+        // Act
+        String json = JsonHelper.toJson(List.of("line\nbreak", "caf\u00e9 \u20ac", "\u0001"));
+
+        // Assert
+        assertEquals("[\"line\\nbreak\",\"caf\u00e9 \u20ac\",\"\\u0001\"]", json);
+    }
+
+    @Test
+    void testParseMap_TypedValues() {
+        // Act
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = JsonHelper.fromJson("{\"name\":\"amount_rule\",\"enabled\":true,\"threshold\":1500}",
+                Map.class);
+
+        // Assert
+        assertEquals("amount_rule", map.get("name"));
+        assertEquals(Boolean.TRUE, map.get("enabled"));
+        assertEquals(1500, map.get("threshold"));
+    }
+
+    @Test
+    void testWriteMapsArraysAndNumbers() {
+        // Arrange
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hourly", new int[] { 1, 2, 3 });
+        stats.put("total", 10.5);
+        stats.put("count", 7L);
+        stats.put("missing", null);
+
+        // Act
+        String json = JsonHelper.toJson(stats);
+
+        // Assert
+        assertEquals("{\"hourly\":[1,2,3],\"total\":10.5,\"count\":7,\"missing\":null}", json);
+    }
+
+    @Test
+    void testDecisionSerializesBooleanProperty() {
+        // Act
+        String json = JsonHelper.toJson(FraudDecision.approve("TXN-1"));
+
+        // Assert
+        assertTrue(json.contains("\"fraud\":false"));
+        assertTrue(json.contains("\"riskScore\":0.0"));
+    }
+
+    @Test
+    void testDecimalParsing_MatchesDoubleParse() {
+        // Arrange
+        String[] numbers = { "0.1", "123.45", "-0.005", "999999.99", "1e3", "12345678901234567.5" };
+
+        for (String number : numbers) {
+            // Act
+            Transaction parsed = JsonHelper.fromJson("{\"amount\":" + number + "}", Transaction.class);
+
+            // Assert
+            assertEquals(Double.parseDouble(number), parsed.getAmount(), number);
+        }
+    }
+
+    @Test
+    void testMalformedJson_Rejected() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonHelper.fromJson("{\"amount\":12,", Transaction.class));
+    }
+}
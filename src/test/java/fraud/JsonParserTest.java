@@ -0,0 +1,102 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming JSON parser.
+ */
+class JsonParserTest {
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testNestedObject_BoundFromStream() {
+        // Arrange
+        String json = "{\"userId\":\"user-009\",\"amount\":42.5,"
+                + "\"location\":{\"city\":\"São Paulo\",\"country\":\"BR\"},\"extra\":{\"a\":[1,{\"b\":null}]}}";
+
+        // Act
+        Transaction txn = JsonCodec.fromJson(stream(json), Transaction.class, 1024);
+
+        // Assert
+        assertEquals("user-009", txn.getUserId());
+        assertEquals(42.5, txn.getAmount());
+        assertEquals("São Paulo", txn.getLocation().getCity());
+        assertEquals("BR", txn.getLocation().getCountry());
+    }
+
+    @Test
+    void testTypedList_BoundAsStrings() {
+        // Arrange
+        String json = "{\"alertId\":\"ALT-1\",\"reasons\":[\"High amount\",\"Velocity\"],\"triggeredRules\":[]}";
+
+        // Act
+        FraudAlert alert = JsonCodec.fromJson(json, FraudAlert.class);
+
+        // Assert
+        assertEquals(List.of("High amount", "Velocity"), alert.getReasons());
+        assertTrue(alert.getTriggeredRules().isEmpty());
+    }
+
+    @Test
+    void testTypeMismatch_Rejected() {
+        // Act & Assert
+        assertThrows(BadRequestException.class,
+                () -> JsonCodec.fromJson("{\"reasons\":[[\"nested\"]]}", FraudAlert.class));
+        assertThrows(BadRequestException.class,
+                () -> JsonCodec.fromJson("{\"location\":\"Paris\"}", Transaction.class));
+    }
+
+    @Test
+    void testBodyLargerThanLimit_Rejected() {
+        // Arrange
+        StringBuilder json = new StringBuilder("{\"merchantId\":\"");
+        for (int i = 0; i < 20000; i++) {
+            json.append('x');
+        }
+        json.append("\"}");
+
+        // Act & Assert
+        assertThrows(JsonParser.LimitExceededException.class,
+                () -> JsonCodec.fromJson(stream(json.toString()), Transaction.class, 4096));
+    }
+
+    @Test
+    void testDeepNesting_Rejected() {
+        // Arrange
+        String json = "[".repeat(JsonParser.DEFAULT_MAX_DEPTH + 1) + "]".repeat(JsonParser.DEFAULT_MAX_DEPTH + 1);
+
+        // Act & Assert
+        assertThrows(JsonParser.LimitExceededException.class,
+                () -> new JsonParser(stream(json), 1024).parse(Object.class));
+    }
+
+    @Test
+    void testPullApi_StreamsArrayElements() {
+        // Arrange
+        JsonParser parser = new JsonParser(stream("[{\"userId\":\"a\"}, {\"userId\":\"b\"} ,{\"userId\":\"c\"}]"), 1024);
+        List<String> users = new ArrayList<>();
+
+        // Act
+        assertEquals(JsonParser.Token.BEGIN_ARRAY, parser.peekToken());
+        parser.beginArray();
+        while (parser.hasNext()) {
+            users.add(parser.read(Transaction.class).getUserId());
+        }
+        parser.endArray();
+
+        // Assert
+        assertEquals(List.of("a", "b", "c"), users);
+        assertEquals(JsonParser.Token.END_DOCUMENT, parser.peekToken());
+    }
+}
@@ -0,0 +1,132 @@
+package fraud;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OffHeapTransactionStore.
+ */
+class OffHeapTransactionStoreTest {
+
+    private static final Instant BASE = Instant.parse("2024-01-01T00:00:00Z");
+
+    private TransactionStats stats;
+    private OffHeapTransactionStore store;
+
+    @BeforeEach
+    void setUp() {
+        stats = new TransactionStats();
+        store = new OffHeapTransactionStore(4, stats);
+    }
+
+    private static Transaction txn(String id, String userId, int minutes) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId(id);
+        txn.setUserId(userId);
+        txn.setAmount(10);
+        txn.setCurrency("EUR");
+        txn.setMerchantId("shop");
+        txn.setTimestamp(BASE.plusSeconds(minutes * 60L));
+        txn.setLocation(new Location("Paris", "FR"));
+        return txn;
+    }
+
+    private static List<String> ids(Iterable<Transaction> transactions) {
+        List<String> ids = new ArrayList<>();
+        transactions.forEach(txn -> ids.add(txn.getTransactionId()));
+        return ids;
+    }
+
+    @Test
+    void testPut_RoundTripsColumns() {
+        // Arrange
+        String longId = "txn-" + "x".repeat(60);
+        store.put(txn("T1", "alice", 1));
+        store.put(txn(longId, "bob", 2));
+
+        // Act
+        Transaction txn = store.get("T1");
+
+        // Assert
+        assertEquals("alice", txn.getUserId());
+        assertEquals(10, txn.getAmount());
+        assertEquals("EUR", txn.getCurrency());
+        assertEquals("shop", txn.getMerchantId());
+        assertEquals(BASE.plusSeconds(60), txn.getTimestamp());
+        assertEquals("Paris", txn.getLocation().getCity());
+        assertEquals("FR", txn.getLocation().getCountry());
+        assertEquals("bob", store.get(longId).getUserId());
+        assertNull(store.get("T2"));
+    }
+
+    @Test
+    void testPut_EvictsOldestAndKeepsStatsInStep() {
+        // Arrange
+        for (int i = 0; i < 6; i++) {
+            store.put(txn("T" + i, "alice", i));
+        }
+
+        // Act
+        store.put(txn("T5", "alice", 10)); // replaces in place of T2
+        Transaction changes = new Transaction();
+        changes.setAmount(30);
+        Transaction updated = store.update("T4", changes);
+        boolean removed = store.remove("T3");
+
+        // Assert
+        assertEquals(List.of("T4", "T5"), ids(store));
+        assertEquals(30, updated.getAmount());
+        assertTrue(removed);
+        assertNull(store.get("T0"));
+        assertNull(store.get("T2"));
+        assertEquals(2, store.size());
+        assertEquals(2, stats.getCount());
+        assertEquals(40, stats.getTotalAmount());
+    }
+
+    @Test
+    void testFind_PagesUserHistoryNewestInsertFirst() {
+        // Arrange: arrives out of order
+        store.put(txn("T1", "alice", 10));
+        store.put(txn("T2", "bob", 11));
+        store.put(txn("T3", "alice", 5));
+        store.put(txn("T4", "alice", 20));
+
+        // Act
+        Page<Transaction> first = store.find("alice", null, null, null, 2);
+        Page<Transaction> second = store.find("alice", null, null, first.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(List.of("T3", "T1", "T4"), ids(store.getByUser("alice")));
+        assertEquals(List.of("T1", "T4"), ids(store.getRecentByUser("alice", 2)));
+        assertEquals(List.of("T1"), ids(store.getByUser("alice", BASE.plusSeconds(360), BASE.plusSeconds(1200))));
+        assertEquals(List.of("T4", "T3"), ids(first.getItems()));
+        assertEquals(List.of("T1"), ids(second.getItems()));
+        assertNull(second.getNextCursor());
+        assertEquals(List.of("T4", "T3", "T2"), ids(store.find(null, null, null, null, 3).getItems()));
+    }
+
+    @Test
+    void testFind_ContinuesAfterDeletedCursorRow() {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            store.put(txn("T" + i, "alice", i));
+        }
+        Page<Transaction> first = store.find("alice", null, null, null, 2);
+
+        // Act: the last row of the page goes before the next one is read
+        store.remove("T2");
+        Page<Transaction> second = store.find("alice", null, null, first.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(List.of("T3", "T2"), ids(first.getItems()));
+        assertEquals(List.of("T1", "T0"), ids(second.getItems()));
+        assertNull(second.getNextCursor());
+    }
+}
@@ -0,0 +1,94 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for rolling window metrics.
+ */
+class RollingMetricsTest {
+
+    private static final long NOW = Instant.parse("2024-01-08T12:30:00Z").toEpochMilli(); // Monday
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    private static FraudDecision decision(boolean fraud, String... rules) {
+        return new FraudDecision("T", fraud, fraud ? 60 : 0, List.of(), List.of(rules));
+    }
+
+    @Test
+    void testQuery_CountsOnlyInsideWindow() {
+        // Arrange
+        RollingMetrics metrics = new RollingMetrics(60, 24 * 8, ZoneOffset.UTC);
+        metrics.record(NOW - 5 * MINUTE, 50, decision(false));
+        metrics.record(NOW - 30 * MINUTE, 2000, decision(true, "amount_rule", "velocity_rule"));
+        metrics.record(NOW - 3 * HOUR, 700, decision(true, "amount_rule"));
+        metrics.record(NOW - 2 * 24 * HOUR, 10, decision(false));
+
+        // Act
+        RollingMetrics.Window lastTenMinutes = metrics.query(Duration.ofMinutes(10), NOW);
+        RollingMetrics.Window lastHour = metrics.query(Duration.ofHours(1), NOW);
+        RollingMetrics.Window lastWeek = metrics.query(Duration.ofDays(7), NOW);
+
+        // Assert
+        assertEquals(1, lastTenMinutes.getCount());
+        assertEquals(2, lastHour.getCount());
+        assertEquals(2050.0, lastHour.getTotalAmount(), 1e-9);
+        assertEquals(1, lastHour.getFraudCount());
+        assertEquals(4, lastWeek.getCount());
+        assertEquals(2, lastWeek.getFraudCount());
+        assertEquals(2L, lastWeek.getFraudByRule().get("amount_rule"));
+        assertEquals(1L, lastWeek.getFraudByRule().get("velocity_rule"));
+        assertEquals(1L, lastWeek.getAmountRanges().get("$1000+"));
+        assertEquals(1L, lastWeek.getDayOfWeekDistribution().get("Saturday"));
+        assertEquals(3, lastWeek.getHourlyDistribution()[12]);
+        assertEquals(1, lastWeek.getHourlyDistribution()[9]);
+    }
+
+    @Test
+    void testRecord_CountsPipelineDecisionsByTriggeredMask() {
+        // Arrange: decisions in the pipeline's compact form
+        RollingMetrics metrics = new RollingMetrics(60, 24, ZoneOffset.UTC);
+        Rule[] rules = { new AmountRule(), new VelocityRule(new VelocityTracker(60_000, 100)) };
+        metrics.record(NOW - MINUTE, 6000, new FraudDecision("T1", true, 80, rules, 0b01, new double[2], 1));
+        metrics.record(NOW - 2 * MINUTE, 6000, new FraudDecision("T2", true, 90, rules, 0b11, new double[2], 1));
+
+        // Act
+        RollingMetrics.Window window = metrics.query(Duration.ofMinutes(10), NOW);
+
+        // Assert
+        assertEquals(2L, window.getFraudByRule().get("amount_rule"));
+        assertEquals(1L, window.getFraudByRule().get("velocity_rule"));
+    }
+
+    @Test
+    void testBucketReuse_DropsExpiredData() {
+        // Arrange: ring of 60 minute buckets and 2 hour buckets
+        RollingMetrics metrics = new RollingMetrics(60, 2, ZoneOffset.UTC);
+        metrics.record(NOW - 2 * HOUR, 100, decision(false));
+
+        // Act: same slots come round again
+        metrics.record(NOW, 100, decision(false));
+
+        // Assert
+        assertEquals(1, metrics.query(Duration.ofHours(2), NOW).getCount());
+        assertEquals(1, metrics.query(Duration.ofMinutes(60), NOW).getCount());
+    }
+
+    @Test
+    void testParseWindow() {
+        // Assert
+        assertEquals(Duration.ofMinutes(15), RollingMetrics.parseWindow("15m"));
+        assertEquals(Duration.ofHours(24), RollingMetrics.parseWindow("24h"));
+        assertEquals(Duration.ofDays(7), RollingMetrics.parseWindow("7d"));
+        assertThrows(IllegalArgumentException.class, () -> RollingMetrics.parseWindow("7w"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RollingMetrics().query(Duration.ofDays(365)));
+    }
+}
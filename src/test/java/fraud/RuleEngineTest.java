@@ -0,0 +1,179 @@
+package fraud;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the compiled RuleEngine pipeline.
+ */
+class RuleEngineTest {
+
+    private RuleEngine ruleEngine;
+
+    @BeforeEach
+    void setUp() {
+        ruleEngine = new RuleEngine();
+        // Random demo rule, keep results deterministic
+        ruleEngine.setRuleEnabled("new_account_rule", false);
+    }
+
+    @Test
+    void testNormalTransaction_Approved() {
+        // Act
+        FraudDecision decision = ruleEngine.analyze(createTransaction("user-1", 100));
+
+        // Assert
+        assertFalse(decision.isFraud());
+        assertEquals(0, decision.getRiskScore());
+        assertTrue(decision.getTriggeredRules().isEmpty());
+    }
+
+    @Test
+    void testHighAmountTransaction_TriggersAmountRule() {
+        // Act
+        FraudDecision decision = ruleEngine.analyze(createTransaction("user-1", 5000));
+
+        // Assert
+        assertEquals(30, decision.getRiskScore());
+        assertEquals(1, decision.getTriggeredRules().size());
+        assertEquals("amount_rule", decision.getTriggeredRules().get(0));
+        assertTrue(decision.getReasons().get(0).contains("5000.00"));
+    }
+
+    @Test
+    void testDecisionJson_RendersReasonsOnSerialization() {
+        // Arrange
+        FraudDecision decision = ruleEngine.analyze(createTransaction("user-1", 5000));
+
+        // Act
+        String json = JsonHelper.toJson(decision);
+
+        // Assert
+        assertTrue(decision.hasTriggeredRules());
+        assertTrue(json.contains("\"reasons\":[\"Transaction amount $5000.00 exceeds threshold\"]"));
+        assertTrue(json.contains("\"triggeredRules\":[\"amount_rule\"]"));
+        assertFalse(json.contains("triggeredMask"));
+    }
+
+    @Test
+    void testDisabledRule_NotEvaluated() {
+        // Arrange
+        ruleEngine.setRuleEnabled("amount_rule", false);
+
+        // Act
+        FraudDecision decision = ruleEngine.analyze(createTransaction("user-1", 5000));
+
+        // Assert
+        assertTrue(decision.getTriggeredRules().isEmpty());
+        assertEquals(2, ruleEngine.getEnabledRulesCount());
+    }
+
+    @Test
+    void testThresholdChange_AppliesToNextTransaction() {
+        // Arrange
+        ruleEngine.setRuleThreshold("amount_rule", 10000);
+
+        // Act
+        FraudDecision decision = ruleEngine.analyze(createTransaction("user-1", 5000));
+
+        // Assert
+        assertTrue(decision.getTriggeredRules().isEmpty());
+        assertEquals(10000, ruleEngine.getRuleThreshold("amount_rule"));
+    }
+
+    @Test
+    void testConfigChange_NewVersionRecordedInDecision() {
+        // Arrange
+        long before = ruleEngine.getConfig().getVersion();
+
+        // Act
+        ruleEngine.setRuleThreshold("amount_rule", 2000);
+        ruleEngine.setRuleThreshold("amount_rule", 2000); // no-op
+        FraudDecision decision = ruleEngine.analyze(createTransaction("user-1", 100));
+
+        // Assert
+        assertEquals(before + 1, ruleEngine.getConfig().getVersion());
+        assertEquals(before + 1, decision.getConfigVersion());
+        assertFalse(ruleEngine.setRuleEnabled("unknown_rule", true));
+    }
+
+    @Test
+    void testVelocityAndAmount_CumulativeRisk() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            ruleEngine.analyze(createTransaction("user-2", 10));
+        }
+
+        // Act
+        FraudDecision decision = ruleEngine.analyze(createTransaction("user-2", 5000));
+
+        // Assert
+        assertTrue(decision.isFraud());
+        assertEquals(55, decision.getRiskScore());
+        assertTrue(decision.getTriggeredRules().contains("velocity_rule"));
+    }
+
+    @Test
+    void testCustomRule_PluggedInWithoutEngineChanges() {
+        // Arrange
+        ruleEngine.registerRule(new MerchantBlocklistRule());
+
+        // Act
+        Transaction txn = createTransaction("user-1", 10);
+        txn.setMerchantId("ShadyShop");
+        FraudDecision decision = ruleEngine.analyze(txn);
+
+        // Assert
+        assertTrue(decision.isFraud());
+        assertEquals(java.util.List.of("Merchant is blocklisted"), decision.getReasons());
+        assertEquals(5, ruleEngine.getTotalRulesCount());
+    }
+
+    private Transaction createTransaction(String userId, double amount) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId("TXN-TEST");
+        txn.setUserId(userId);
+        txn.setAmount(amount);
+        txn.setCurrency("USD");
+        txn.setMerchantId("Amazon");
+        txn.setTimestamp(Instant.now());
+        txn.setLocation(new Location("New York", "US"));
+        return txn;
+    }
+
+    private static class MerchantBlocklistRule implements Rule {
+        @Override
+        public String getName() {
+            return "merchant_blocklist_rule";
+        }
+
+        @Override
+        public int getDefaultThreshold() {
+            return 0;
+        }
+
+        @Override
+        public double getRiskScore() {
+            return 60;
+        }
+
+        @Override
+        public Rule withThreshold(int threshold) {
+            return this;
+        }
+
+        @Override
+        public double evaluate(Transaction transaction) {
+            return "ShadyShop".equals(transaction.getMerchantId()) ? 1 : NOT_TRIGGERED;
+        }
+
+        @Override
+        public String describe(double detail) {
+            return "Merchant is blocklisted";
+        }
+    }
+}
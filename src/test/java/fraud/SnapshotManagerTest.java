@@ -0,0 +1,117 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for snapshots and log truncation.
+ */
+class SnapshotManagerTest {
+
+    @TempDir
+    Path dir;
+
+    private static Transaction txn(String id) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId(id);
+        txn.setUserId("user-1");
+        txn.setAmount(42);
+        txn.setTimestamp(Instant.parse("2024-01-01T10:00:00Z"));
+        txn.setLocation(new Location("Paris", "FR"));
+        return txn;
+    }
+
+    private static List<Path> list(Path path) throws Exception {
+        try (Stream<Path> files = Files.list(path)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testRecover_LoadsSnapshotAndReplaysOnlyTail() throws Exception {
+        // Arrange
+        WriteAheadLog wal = new WriteAheadLog(dir.resolve("wal"), 1024, 0, true);
+        TransactionStorage transactions = new TransactionStorage();
+        AlertStorage alerts = new AlertStorage();
+        RuleEngine ruleEngine = new RuleEngine();
+        SnapshotManager snapshots = new SnapshotManager(dir.resolve("snap"), wal, transactions, alerts, ruleEngine);
+        transactions.setWriteAheadLog(wal);
+        alerts.setWriteAheadLog(wal);
+
+        // Act: two snapshots with writes before and after each
+        for (int i = 0; i < 50; i++) {
+            transactions.addTransaction(txn("A" + i));
+        }
+        ruleEngine.setRuleEnabled("amount_rule", false);
+        wal.logRuleConfig(ruleEngine.getConfig());
+        snapshots.snapshot();
+        for (int i = 0; i < 50; i++) {
+            transactions.addTransaction(txn("B" + i));
+        }
+        transactions.deleteTransaction("A0");
+        long lsn = snapshots.snapshot();
+        transactions.addTransaction(txn("C0"));
+        alerts.addAlert(FraudAlert.forDecision(txn("C0"),
+                new FraudDecision("C0", true, 90, List.of("big"), List.of("velocity_rule"))));
+        wal.close();
+
+        WriteAheadLog reopened = new WriteAheadLog(dir.resolve("wal"), 1024, 0, true);
+        TransactionStorage restored = new TransactionStorage();
+        AlertStorage restoredAlerts = new AlertStorage();
+        RuleEngine restoredEngine = new RuleEngine();
+        long replayed = new SnapshotManager(dir.resolve("snap"), reopened, restored, restoredAlerts, restoredEngine)
+                .recover();
+
+        // Assert
+        assertEquals(102, lsn);
+        assertEquals(2, replayed);
+        assertEquals(100, restored.getTransactionCount());
+        assertNull(restored.getTransaction("A0"));
+        assertNotNull(restored.getTransaction("C0"));
+        assertEquals(1, restoredAlerts.getAlertCount());
+        assertFalse(restoredEngine.getEnabledRules().get("amount_rule"));
+        assertEquals(2, list(dir.resolve("snap")).size());
+        assertTrue(Files.size(list(dir.resolve("wal")).get(0)) > 0);
+        assertTrue(Long.parseLong(list(dir.resolve("wal")).get(0).getFileName().toString().replace(".wal", "")) > 1);
+        assertTrue(reopened.logTransaction(txn("D0")) > lsn);
+    }
+
+    @Test
+    void testRecover_FallsBackToOlderSnapshot() throws Exception {
+        // Arrange
+        WriteAheadLog wal = new WriteAheadLog(dir.resolve("wal"), 1024, 0, true);
+        TransactionStorage transactions = new TransactionStorage();
+        SnapshotManager snapshots = new SnapshotManager(dir.resolve("snap"), wal, transactions, new AlertStorage(),
+                new RuleEngine());
+        transactions.setWriteAheadLog(wal);
+        transactions.addTransaction(txn("A0"));
+        snapshots.snapshot();
+        transactions.addTransaction(txn("B0"));
+        snapshots.snapshot();
+        wal.close();
+
+        // Act: damage the newest snapshot
+        Path newest = list(dir.resolve("snap")).get(1);
+        byte[] bytes = Files.readAllBytes(newest);
+        bytes[20] ^= 0x55;
+        Files.write(newest, bytes);
+
+        WriteAheadLog reopened = new WriteAheadLog(dir.resolve("wal"), 1024, 0, true);
+        TransactionStorage restored = new TransactionStorage();
+        long replayed = new SnapshotManager(dir.resolve("snap"), reopened, restored, new AlertStorage(),
+                new RuleEngine()).recover();
+
+        // Assert
+        assertEquals(1, replayed);
+        assertEquals(2, restored.getTransactionCount());
+    }
+}
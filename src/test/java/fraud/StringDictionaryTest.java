@@ -0,0 +1,49 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StringDictionary.
+ */
+class StringDictionaryTest {
+
+    @Test
+    void testIntern_ReturnsCanonicalInstanceAndCode() {
+        // Arrange
+        StringDictionary dictionary = new StringDictionary(100);
+        String first = dictionary.intern("USD");
+
+        // Act
+        String fromBuilder = dictionary.intern(new StringBuilder("US").append('D'));
+        for (int i = 0; i < 50; i++) {
+            dictionary.intern("city-" + i); // grows the table
+        }
+
+        // Assert
+        assertSame(first, fromBuilder);
+        assertSame(first, dictionary.intern(new String("USD")));
+        assertEquals(0, dictionary.code("USD"));
+        assertEquals("city-7", dictionary.get(dictionary.find("city-7")));
+        assertEquals(-1, dictionary.find("EUR"));
+        assertEquals(51, dictionary.size());
+    }
+
+    @Test
+    void testIntern_StopsAddingWhenFull() {
+        // Arrange
+        StringDictionary dictionary = new StringDictionary(2);
+        dictionary.intern("a");
+        dictionary.intern("b");
+
+        // Act
+        String overflow = dictionary.intern("c");
+
+        // Assert
+        assertEquals("c", overflow);
+        assertEquals(-1, dictionary.code("c"));
+        assertEquals(2, dictionary.size());
+        assertEquals(1, dictionary.code("b"));
+    }
+}
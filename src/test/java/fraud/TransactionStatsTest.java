@@ -0,0 +1,93 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the incremental transaction aggregates.
+ */
+class TransactionStatsTest {
+
+    private static Transaction txn(String id, double amount, String timestamp, String city, String country) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId(id);
+        txn.setUserId("user-1");
+        txn.setAmount(amount);
+        txn.setTimestamp(Instant.parse(timestamp));
+        txn.setLocation(new Location(city, country));
+        return txn;
+    }
+
+    @Test
+    void testAdd_BucketsByLocalHourAndDay() {
+        // Arrange
+        TransactionStats stats = new TransactionStats(ZoneOffset.UTC);
+
+        // Act: 2024-01-01 was a Monday, 2024-01-07 a Sunday
+        stats.add(txn("T1", 50, "2024-01-01T10:15:00Z", "Paris", "FR"));
+        stats.add(txn("T2", 750, "2024-01-07T23:59:59Z", "Paris", "FR"));
+        stats.add(txn("T3", 100, "2024-01-03T00:00:00Z", "Berlin", "DE"));
+
+        // Assert
+        assertEquals(3, stats.getCount());
+        assertEquals(900.0, stats.getTotalAmount(), 1e-9);
+        assertEquals(1, stats.getHourlyDistribution()[10]);
+        assertEquals(1, stats.getHourlyDistribution()[23]);
+        assertEquals(1, stats.getHourlyDistribution()[0]);
+        assertEquals(1L, stats.getDayOfWeekDistribution().get("Monday"));
+        assertEquals(1L, stats.getDayOfWeekDistribution().get("Wednesday"));
+        assertEquals(1L, stats.getDayOfWeekDistribution().get("Sunday"));
+        assertEquals(Map.of("$0-$100", 1L, "$100-$500", 1L, "$500-$1000", 1L, "$1000+", 0L), stats.getAmountRanges());
+        assertEquals(Map.of("FR", 2L, "DE", 1L), stats.getCountryDistribution());
+        assertEquals(2L, stats.getCityDistribution().get("Paris, FR"));
+    }
+
+    @Test
+    void testLocalTime_UsesZoneOffset() {
+        // Arrange
+        TransactionStats stats = new TransactionStats(ZoneId.of("America/New_York"));
+
+        // Act: 03:00 UTC Monday is 22:00 Sunday in New York
+        stats.add(txn("T1", 10, "2024-01-01T03:00:00Z", "New York", "US"));
+
+        // Assert
+        assertEquals(1, stats.getHourlyDistribution()[22]);
+        assertEquals(1L, stats.getDayOfWeekDistribution().get("Sunday"));
+    }
+
+    @Test
+    void testStorage_KeepsStatsInStepWithUpdateDeleteAndEviction() {
+        // Arrange
+        TransactionStorage storage = new TransactionStorage();
+        storage.addTransaction(txn("T1", 50, "2024-01-01T10:00:00Z", "Paris", "FR"));
+        storage.addTransaction(txn("T2", 60, "2024-01-01T11:00:00Z", "Berlin", "DE"));
+
+        // Act
+        Transaction update = new Transaction();
+        update.setAmount(2000);
+        storage.updateTransaction("T1", update);
+        storage.deleteTransaction("T2");
+        storage.addTransaction(txn("T1", 5, "2024-01-01T12:00:00Z", "Rome", "IT")); // replaces T1
+
+        // Assert
+        TransactionStats stats = storage.getStats();
+        assertEquals(1, stats.getCount());
+        assertEquals(5.0, stats.getTotalAmount(), 1e-9);
+        assertEquals(Map.of("IT", 1L), stats.getCountryDistribution());
+
+        // Act: wrap the ring so everything above is evicted
+        for (int i = 0; i < 10000; i++) {
+            storage.addTransaction(txn("F" + i, 1, "2024-01-02T00:00:00Z", "Oslo", "NO"));
+        }
+
+        // Assert
+        assertEquals(10000, stats.getCount());
+        assertEquals(Map.of("NO", 10000L), stats.getCountryDistribution());
+    }
+}
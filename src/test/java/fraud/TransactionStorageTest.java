@@ -0,0 +1,270 @@
+package fraud;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TransactionStorage.
+ */
+class TransactionStorageTest {
+
+    private static final Instant BASE = Instant.parse("2024-01-01T00:00:00Z");
+
+    private TransactionStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new TransactionStorage();
+    }
+
+    private static Transaction txn(String id, String userId, int minutes) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId(id);
+        txn.setUserId(userId);
+        txn.setAmount(10);
+        txn.setTimestamp(BASE.plusSeconds(minutes * 60L));
+        return txn;
+    }
+
+    private static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getTransactionId).toList();
+    }
+
+    @Test
+    void testUserIndex_OrderedByTime() {
+        // Arrange: arrives out of order
+        storage.addTransaction(txn("T1", "alice", 10));
+        storage.addTransaction(txn("T2", "bob", 11));
+        storage.addTransaction(txn("T3", "alice", 5));
+        storage.addTransaction(txn("T4", "alice", 20));
+
+        // Act
+        List<Transaction> history = storage.getTransactionsByUser("alice");
+
+        // Assert
+        assertEquals(List.of("T3", "T1", "T4"), ids(history));
+        assertEquals(List.of("T1", "T4"), ids(storage.getRecentTransactionsByUser("alice", 2)));
+        assertTrue(storage.getTransactionsByUser("nobody").isEmpty());
+    }
+
+    @Test
+    void testUserIndex_TimeRange() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            storage.addTransaction(txn("T" + i, "alice", i));
+        }
+
+        // Act
+        List<Transaction> range = storage.getTransactionsByUser("alice", BASE.plusSeconds(180), BASE.plusSeconds(360));
+
+        // Assert: from inclusive, to exclusive
+        assertEquals(List.of("T3", "T4", "T5"), ids(range));
+    }
+
+    @Test
+    void testUserIndex_TimeRangeNullBoundsAreOpen() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            storage.addTransaction(txn("T" + i, "alice", i));
+        }
+
+        // Act
+        List<Transaction> upTo = storage.getTransactionsByUser("alice", null, BASE.plusSeconds(120));
+        List<Transaction> from = storage.getTransactionsByUser("alice", BASE.plusSeconds(180), null);
+        List<Transaction> all = storage.getTransactionsByUser("alice", null, null);
+
+        // Assert
+        assertEquals(List.of("T0", "T1"), ids(upTo));
+        assertEquals(List.of("T3", "T4"), ids(from));
+        assertEquals(5, all.size());
+    }
+
+    @Test
+    void testUserIndex_FollowsDeleteAndEviction() {
+        // Arrange
+        storage.addTransaction(txn("FIRST", "alice", 0));
+        storage.addTransaction(txn("SECOND", "alice", 1));
+        storage.addTransaction(txn("THIRD", "alice", 2));
+
+        // Act
+        storage.deleteTransaction("SECOND");
+        for (int i = 0; i < 9999; i++) {
+            storage.addTransaction(txn("FILL-" + i, "bob", 3));
+        }
+
+        // Assert: FIRST evicted by the size limit, SECOND deleted
+        assertEquals(List.of("THIRD"), ids(storage.getTransactionsByUser("alice")));
+        assertNull(storage.getTransaction("FIRST"));
+    }
+
+    @Test
+    void testUserIndex_DeletesFromEitherHalfKeepOrder() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            storage.addTransaction(txn("T" + i, "alice", i));
+        }
+
+        // Act
+        storage.deleteTransaction("T0");
+        storage.deleteTransaction("T2");
+        storage.deleteTransaction("T8");
+        storage.addTransaction(txn("T10", "alice", 10));
+
+        // Assert
+        assertEquals(List.of("T1", "T3", "T4", "T5", "T6", "T7", "T9", "T10"),
+                ids(storage.getTransactionsByUser("alice")));
+    }
+
+    @Test
+    void testIteration_InsertionOrderSkippingDeleted() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            storage.addTransaction(txn("T" + i, "alice", 10 - i));
+        }
+        storage.deleteTransaction("T2");
+
+        // Act
+        List<Transaction> all = storage.getAllTransactions();
+
+        // Assert
+        assertEquals(List.of("T0", "T1", "T3", "T4"), ids(all));
+        assertEquals(4, storage.getTransactionCount());
+    }
+
+    @Test
+    void testIteration_SnapshotExcludesLaterInserts() {
+        // Arrange
+        storage.addTransaction(txn("T1", "alice", 0));
+        storage.addTransaction(txn("T2", "alice", 1));
+        Iterator<Transaction> it = storage.iterator();
+
+        // Act
+        storage.addTransaction(txn("T3", "alice", 2));
+        List<String> seen = new ArrayList<>();
+        it.forEachRemaining(t -> seen.add(t.getTransactionId()));
+
+        // Assert
+        assertEquals(List.of("T1", "T2"), seen);
+    }
+
+    @Test
+    void testEviction_KeepsNewestAfterWrap() {
+        // Act
+        for (int i = 0; i < 25000; i++) {
+            storage.addTransaction(txn("T" + i, "user-" + (i % 50), i));
+        }
+
+        // Assert
+        List<Transaction> all = storage.getAllTransactions();
+        assertEquals(10000, all.size());
+        assertEquals("T15000", all.get(0).getTransactionId());
+        assertEquals("T24999", all.get(all.size() - 1).getTransactionId());
+        assertNull(storage.getTransaction("T14999"));
+    }
+
+    @Test
+    void testFindTransactions_PagesNewestFirst() {
+        // Arrange
+        for (int i = 0; i < 7; i++) {
+            storage.addTransaction(txn("T" + i, "user-" + (i % 2), i));
+        }
+
+        // Act
+        Page<Transaction> first = storage.findTransactions(null, null, null, null, 3);
+        Page<Transaction> second = storage.findTransactions(null, null, null, first.getNextCursor(), 3);
+        Page<Transaction> last = storage.findTransactions(null, null, null, second.getNextCursor(), 3);
+
+        // Assert
+        assertEquals(List.of("T6", "T5", "T4"), ids(first.getItems()));
+        assertEquals(List.of("T3", "T2", "T1"), ids(second.getItems()));
+        assertEquals(List.of("T0"), ids(last.getItems()));
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void testFindTransactions_UserAndTimeFilters() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            storage.addTransaction(txn("T" + i, "user-" + (i % 2), i));
+        }
+
+        // Act: user-0 between minute 2 (inclusive) and 9 (exclusive)
+        Page<Transaction> first = storage.findTransactions("user-0", BASE.plusSeconds(120), BASE.plusSeconds(540),
+                null, 2);
+        Page<Transaction> second = storage.findTransactions("user-0", BASE.plusSeconds(120), BASE.plusSeconds(540),
+                first.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(List.of("T8", "T6"), ids(first.getItems()));
+        assertEquals(List.of("T4", "T2"), ids(second.getItems()));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testFindTransactions_TimeRangeAcrossBlocks() {
+        // Arrange: 300 inserts in time order, plus one late arrival back in range
+        for (int i = 0; i < 300; i++) {
+            storage.addTransaction(txn("T" + i, "user-" + (i % 3), i));
+        }
+        storage.addTransaction(txn("LATE", "user-0", 101));
+
+        // Act: minute 100 (inclusive) to 104 (exclusive)
+        Page<Transaction> first = storage.findTransactions(null, BASE.plusSeconds(6000), BASE.plusSeconds(6240),
+                null, 3);
+        Page<Transaction> second = storage.findTransactions(null, BASE.plusSeconds(6000), BASE.plusSeconds(6240),
+                first.getNextCursor(), 3);
+
+        // Assert: newest insert first
+        assertEquals(List.of("LATE", "T103", "T102"), ids(first.getItems()));
+        assertEquals(List.of("T101", "T100"), ids(second.getItems()));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testFindTransactions_InvalidCursorRejected() {
+        // Act & Assert
+        assertThrows(BadRequestException.class,
+                () -> storage.findTransactions(null, null, null, "not-a-cursor!", 10));
+        String userCursor = Page.encodeCursor('u', "1.2.3");
+        assertThrows(BadRequestException.class,
+                () -> storage.findTransactions(null, null, null, userCursor, 10));
+    }
+
+    @Test
+    void testUpdate_ConcurrentUpdatesKeepStatsExact() throws Exception {
+        // Arrange
+        storage.addTransaction(txn("T1", "user-1", 0));
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int amount = (t + 1) * 300; // each writer moves it to another range
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    Transaction update = new Transaction();
+                    update.setAmount(amount);
+                    storage.updateTransaction("T1", update);
+                }
+            });
+        }
+
+        // Act
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // Assert: counted exactly once, in its final state
+        TransactionStats stats = storage.getStats();
+        assertEquals(1, stats.getCount());
+        assertEquals(storage.getTransaction("T1").getAmount(), stats.getTotalAmount(), 1e-9);
+        assertEquals(1L, stats.getDetailedAmountRanges().values().stream().mapToLong(Long::longValue).sum());
+    }
+}
@@ -0,0 +1,104 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the VelocityTracker.
+ */
+class VelocityTrackerTest {
+
+    @Test
+    void testTransactionsUnderThreshold_NotTriggered() {
+        // Arrange
+        VelocityTracker tracker = new VelocityTracker(60_000L);
+        long now = 1_000_000L;
+
+        // Act & Assert
+        for (int i = 0; i < 5; i++) {
+            assertFalse(tracker.record("user-1", now + i * 1000L, 5));
+        }
+    }
+
+    @Test
+    void testTransactionsOverThreshold_Triggered() {
+        // Arrange
+        VelocityTracker tracker = new VelocityTracker(60_000L);
+        long now = 1_000_000L;
+        for (int i = 0; i < 5; i++) {
+            tracker.record("user-1", now + i * 1000L, 5);
+        }
+
+        // Act
+        boolean triggered = tracker.record("user-1", now + 5000L, 5);
+
+        // Assert
+        assertTrue(triggered);
+        assertEquals(5, tracker.count("user-1", now + 5000L));
+    }
+
+    @Test
+    void testOldTransactionsSlideOutOfWindow() {
+        // Arrange
+        VelocityTracker tracker = new VelocityTracker(60_000L);
+        long now = 1_000_000L;
+        for (int i = 0; i < 5; i++) {
+            tracker.record("user-1", now + i * 1000L, 5);
+        }
+
+        // Act
+        boolean triggered = tracker.record("user-1", now + 61_000L, 5);
+
+        // Assert
+        assertFalse(triggered);
+    }
+
+    @Test
+    void testUsersTrackedIndependently() {
+        // Arrange
+        VelocityTracker tracker = new VelocityTracker(60_000L);
+        long now = 1_000_000L;
+        for (int i = 0; i < 5; i++) {
+            tracker.record("user-1", now + i, 5);
+        }
+
+        // Act
+        boolean triggered = tracker.record("user-2", now + 5, 5);
+
+        // Assert
+        assertFalse(triggered);
+        assertEquals(2, tracker.getTrackedUserCount());
+    }
+
+    @Test
+    void testThresholdChange_KeepsRecentHistory() {
+        // Arrange
+        VelocityTracker tracker = new VelocityTracker(60_000L);
+        long now = 1_000_000L;
+        for (int i = 0; i < 3; i++) {
+            tracker.record("user-1", now + i, 5);
+        }
+
+        // Act
+        boolean triggered = tracker.record("user-1", now + 3, 2);
+
+        // Assert
+        assertTrue(triggered);
+    }
+
+    @Test
+    void testLeastRecentlyActiveUsersEvicted() {
+        // Arrange
+        VelocityTracker tracker = new VelocityTracker(60_000L, 16);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            tracker.record("user-" + i, 1_000_000L + i, 5);
+        }
+
+        // Assert
+        assertTrue(tracker.getTrackedUserCount() <= 16);
+        assertEquals(1, tracker.count("user-999", 1_001_000L));
+    }
+}
@@ -0,0 +1,185 @@
+package fraud;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the write-ahead log.
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static Transaction txn(String id, double amount) {
+        Transaction txn = new Transaction();
+        txn.setTransactionId(id);
+        txn.setUserId("user-1");
+        txn.setAmount(amount);
+        txn.setCurrency("USD");
+        txn.setTimestamp(Instant.parse("2024-01-01T10:00:00.123456789Z"));
+        txn.setLocation(new Location("Zürich", "CH"));
+        return txn;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testReplay_RestoresStateAcrossSegments() throws Exception {
+        // Arrange: small segments so the log rolls several times
+        WriteAheadLog wal = new WriteAheadLog(dir, 512, 1, true);
+        TransactionStorage transactions = new TransactionStorage();
+        AlertStorage alerts = new AlertStorage();
+        transactions.setWriteAheadLog(wal);
+        alerts.setWriteAheadLog(wal);
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            transactions.addTransaction(txn("T" + i, i * 10));
+        }
+        Transaction update = new Transaction();
+        update.setAmount(999);
+        transactions.updateTransaction("T1", update);
+        transactions.deleteTransaction("T2");
+        FraudAlert alert = FraudAlert.forDecision(txn("T3", 30),
+                new FraudDecision("T3", true, 75, List.of("big"), List.of("amount_rule")));
+        alerts.addAlert(alert);
+        alerts.resolveAlert(alert.getAlertId(), "chargeback");
+        wal.close();
+
+        WriteAheadLog reopened = new WriteAheadLog(dir, 512, 1, true);
+        TransactionStorage restored = new TransactionStorage();
+        AlertStorage restoredAlerts = new AlertStorage();
+        long replayed = reopened.replay(restored, restoredAlerts);
+        reopened.close();
+
+        // Assert
+        assertTrue(segments().size() > 1);
+        assertEquals(24, replayed);
+        assertEquals(19, restored.getTransactionCount());
+        assertNull(restored.getTransaction("T2"));
+        assertEquals(999, restored.getTransaction("T1").getAmount(), 1e-9);
+        Transaction t5 = restored.getTransaction("T5");
+        assertEquals("Zürich", t5.getLocation().getCity());
+        assertEquals(Instant.parse("2024-01-01T10:00:00.123456789Z"), t5.getTimestamp());
+        FraudAlert restoredAlert = restoredAlerts.getAlert(alert.getAlertId());
+        assertEquals("RESOLVED", restoredAlert.getStatus());
+        assertEquals("chargeback", restoredAlert.getResolution());
+        assertEquals(List.of("big"), restoredAlert.getReasons());
+    }
+
+    @Test
+    void testReplay_StatusFilteredQueriesSeeRestoredStatus() throws Exception {
+        // Arrange
+        WriteAheadLog wal = new WriteAheadLog(dir, 4096, 0, true);
+        AlertStorage alerts = new AlertStorage(Duration.ZERO);
+        alerts.setWriteAheadLog(wal);
+        FraudAlert resolved = FraudAlert.forDecision(txn("T1", 10),
+                new FraudDecision("T1", true, 80, List.of("big"), List.of("amount_rule")));
+        alerts.addAlert(resolved);
+        alerts.addAlert(FraudAlert.forDecision(txn("T2", 20),
+                new FraudDecision("T2", true, 80, List.of("big"), List.of("amount_rule"))));
+        alerts.resolveAlert(resolved.getAlertId(), "chargeback");
+        wal.close();
+
+        // Act
+        WriteAheadLog reopened = new WriteAheadLog(dir, 4096, 0, true);
+        AlertStorage restored = new AlertStorage(Duration.ZERO);
+        reopened.replay(new TransactionStorage(), restored);
+        reopened.close();
+
+        // Assert
+        assertEquals(1, restored.getAlertsByStatus("RESOLVED").size());
+        assertEquals(1, restored.getAlertsByStatus("NEW").size());
+        Page<FraudAlert> page = restored.findAlerts("RESOLVED", null, null, null, null, 10);
+        assertEquals(List.of(resolved.getAlertId()),
+                page.getItems().stream().map(FraudAlert::getAlertId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testReplay_ConcurrentUpdatesEndInMemoryState() throws Exception {
+        // Arrange
+        WriteAheadLog wal = new WriteAheadLog(dir, 1 << 20, 0, true);
+        TransactionStorage transactions = new TransactionStorage("offheap");
+        transactions.setWriteAheadLog(wal);
+        transactions.addTransaction(txn("T1", 1));
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int base = (t + 1) * 1000;
+            writers[t] = new Thread(() -> {
+                for (int i = 1; i <= 200; i++) {
+                    Transaction update = new Transaction();
+                    update.setAmount(base + i);
+                    transactions.updateTransaction("T1", update);
+                }
+            });
+        }
+
+        // Act
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        wal.close();
+        WriteAheadLog reopened = new WriteAheadLog(dir, 1 << 20, 0, true);
+        TransactionStorage restored = new TransactionStorage("offheap");
+        reopened.replay(restored, new AlertStorage());
+        reopened.close();
+
+        // Assert
+        assertEquals(transactions.getTransaction("T1").getAmount(), restored.getTransaction("T1").getAmount(), 1e-9);
+    }
+
+    @Test
+    void testRecover_StopsAtTornRecordAndKeepsAppending() throws Exception {
+        // Arrange
+        WriteAheadLog wal = new WriteAheadLog(dir, 4096, 0, true);
+        for (int i = 0; i < 3; i++) {
+            wal.sync(wal.logTransaction(txn("T" + i, 1)));
+        }
+        wal.close();
+
+        // Corrupt the last byte of the third record
+        Path segment = segments().get(0);
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long last = ch.size() - 1;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, last);
+            b.put(0, (byte) (b.get(0) ^ 0xff)).rewind();
+            ch.write(b, last);
+        }
+
+        // Act
+        WriteAheadLog reopened = new WriteAheadLog(dir, 4096, 0, true);
+        long lsn = reopened.logTransaction(txn("T9", 1));
+        reopened.sync(lsn);
+        reopened.close();
+        TransactionStorage restored = new TransactionStorage();
+        new WriteAheadLog(dir, 4096, 0, true).replay(restored, new AlertStorage());
+
+        // Assert
+        assertEquals(3, lsn);
+        assertEquals(3, restored.getTransactionCount());
+        assertNull(restored.getTransaction("T2"));
+        assertNotNull(restored.getTransaction("T9"));
+    }
+}